@@ -0,0 +1,198 @@
+package puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** A filter for a relation that pairs every entity of one type with a
+ *  different entity of another type, such as the relation between people
+ *  and jobs.  Candidates that cannot belong to any such pairing are found
+ *  by matching the two types of entities against each other and looking
+ *  for sets of entities whose candidates are used up among themselves.
+ *  @author Tanner Wauchope */
+class AllDifferent {
+
+    /** The candidate sets of the relation, one for each entity on its
+     *  first side. */
+    private final Domains domains;
+
+    /** The kind of the candidate sets of the relation. */
+    private final int kind;
+
+    /** The number of entities on each side of the relation. */
+    private final int complexity;
+
+    /** The entity on the second side matched with each entity on the
+     *  first side, or -1. */
+    private final int[] matchOf;
+
+    /** The entity on the first side matched with each entity on the
+     *  second side, or -1. */
+    private final int[] matchedBy;
+
+    /** True for each entity on the second side visited by the current
+     *  search for an augmenting path. */
+    private final boolean[] visited;
+
+    /** The order in which vertices were first reached while finding
+     *  components, or -1.  Vertices 0 to complexity - 1 are the entities
+     *  on the first side, and the rest are the entities on the second
+     *  side. */
+    private final int[] index;
+
+    /** The smallest index reachable from each vertex while finding
+     *  components. */
+    private final int[] lowLink;
+
+    /** The component of each vertex, or -1. */
+    private final int[] component;
+
+    /** The vertices whose components have not yet been found. */
+    private final int[] stack;
+
+    /** The number of vertices in this.stack. */
+    private int stackSize;
+
+    /** The number of vertices reached so far while finding components. */
+    private int reached;
+
+    /** The number of components found so far. */
+    private int components;
+
+    /** A filter for the candidate sets of KIND in DOMAINS, among
+     *  COMPLEXITY entities on each side. */
+    private AllDifferent(Domains domains, int kind, int complexity) {
+        this.domains = domains;
+        this.kind = kind;
+        this.complexity = complexity;
+        this.matchOf = new int[complexity];
+        this.matchedBy = new int[complexity];
+        this.visited = new boolean[complexity];
+        this.index = new int[2 * complexity];
+        this.lowLink = new int[2 * complexity];
+        this.component = new int[2 * complexity];
+        this.stack = new int[2 * complexity];
+        Arrays.fill(this.matchOf, -1);
+        Arrays.fill(this.matchedBy, -1);
+        Arrays.fill(this.index, -1);
+        Arrays.fill(this.component, -1);
+    }
+
+    /**
+     * @param domains  the candidates of every entity in a puzzle
+     * @param kind  the kind of candidate sets that make up a relation,
+     *              such as Domains.PERSON_JOBS
+     * @param complexity  the number of entities of each type
+     * @param removals  the list to which an [entity, candidate] array is
+     *                  added for every candidate that belongs to no
+     *                  one-to-one pairing of the relation
+     * @return  false iff the relation has no one-to-one pairing at all
+     */
+    static boolean filter(Domains domains, int kind, int complexity,
+            ArrayList<int[]> removals) {
+        AllDifferent filter = new AllDifferent(domains, kind, complexity);
+        if (!filter.match()) {
+            return false;
+        }
+        for (int v = 0; v < 2 * complexity; v += 1) {
+            if (filter.index[v] == -1) {
+                filter.connect(v);
+            }
+        }
+        for (int a = 0; a < complexity; a += 1) {
+            for (int b = domains.first(kind, a); b != -1;
+                    b = domains.next(kind, a, b + 1)) {
+                if (filter.matchOf[a] != b
+                        && filter.component[a]
+                        != filter.component[complexity + b]) {
+                    int[] removal = {a, b};
+                    removals.add(removal);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Match every entity on the first side with a different candidate.
+     *  Return false iff that cannot be done. */
+    private boolean match() {
+        for (int a = 0; a < this.complexity; a += 1) {
+            for (int b = this.domains.first(this.kind, a); b != -1;
+                    b = this.domains.next(this.kind, a, b + 1)) {
+                if (this.matchedBy[b] == -1) {
+                    this.matchOf[a] = b;
+                    this.matchedBy[b] = a;
+                    break;
+                }
+            }
+        }
+        for (int a = 0; a < this.complexity; a += 1) {
+            if (this.matchOf[a] == -1) {
+                Arrays.fill(this.visited, false);
+                if (!augment(a)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Look for a path of alternately unmatched and matched candidates
+     *  from A to an unmatched candidate, and if one is found, swap the
+     *  matches along it.  Return true iff a path was found. */
+    private boolean augment(int a) {
+        for (int b = this.domains.first(this.kind, a); b != -1;
+                b = this.domains.next(this.kind, a, b + 1)) {
+            if (!this.visited[b]) {
+                this.visited[b] = true;
+                if (this.matchedBy[b] == -1 || augment(this.matchedBy[b])) {
+                    this.matchOf[a] = b;
+                    this.matchedBy[b] = a;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Find the strongly connected components reachable from vertex V of
+     *  the graph in which each entity on the first side leads to its
+     *  unmatched candidates, and each entity on the second side leads to
+     *  the entity it is matched with. */
+    private void connect(int v) {
+        this.index[v] = this.reached;
+        this.lowLink[v] = this.reached;
+        this.reached += 1;
+        this.stack[this.stackSize] = v;
+        this.stackSize += 1;
+        if (v < this.complexity) {
+            for (int b = this.domains.first(this.kind, v); b != -1;
+                    b = this.domains.next(this.kind, v, b + 1)) {
+                if (b != this.matchOf[v]) {
+                    follow(v, this.complexity + b);
+                }
+            }
+        } else {
+            follow(v, this.matchedBy[v - this.complexity]);
+        }
+        if (this.lowLink[v] == this.index[v]) {
+            int w;
+            do {
+                this.stackSize -= 1;
+                w = this.stack[this.stackSize];
+                this.component[w] = this.components;
+            } while (w != v);
+            this.components += 1;
+        }
+    }
+
+    /** Follow the edge from vertex V to vertex W while finding
+     *  components. */
+    private void follow(int v, int w) {
+        if (this.index[w] == -1) {
+            connect(w);
+            this.lowLink[v] = Math.min(this.lowLink[v], this.lowLink[w]);
+        } else if (this.component[w] == -1) {
+            this.lowLink[v] = Math.min(this.lowLink[v], this.index[w]);
+        }
+    }
+}
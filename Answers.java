@@ -0,0 +1,310 @@
+package puzzle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/** What a solver knows about each named entity, indexed once so that any
+ *  question about one entity is answered without looking at the others.
+ *  For every named person, job, and color, I hold the id of the named
+ *  entity of each other kind that it is known to go with, or -1 if that
+ *  is not known.  An answer is put together from templates that were
+ *  split into their words ahead of time.  I never change once made, and
+ *  can be written out and read back in by the labels that the canonical
+ *  form of a puzzle gives its entities, so that I may be kept for any
+ *  puzzle with that form, whatever it names its entities.
+ *  @author Tanner Wauchope */
+class Answers {
+
+    /** The template that relates a person, a job, and a color. */
+    private static final int EVERYTHING = 0;
+
+    /** The template that relates a person and a job. */
+    private static final int PERSON_AND_JOB = 1;
+
+    /** The template that relates a person and a color. */
+    private static final int PERSON_AND_COLOR = 2;
+
+    /** The template that relates a job and a color. */
+    private static final int JOB_AND_COLOR = 3;
+
+    /** The text of each template between its blanks, indexed by template
+     *  and then by position, where the blank after text K is filled by
+     *  the name of an entity of kind KINDS[template][K]. */
+    private static final String[][] TEXTS = {
+        {"", " is the ", " and lives in the ", " house."},
+        {"", " is the ", "."},
+        {"", " lives in the ", " house."},
+        {"The ", " lives in the ", " house."},
+    };
+
+    /** The kind of entity that fills each blank of each template. */
+    private static final int[][] KINDS = {
+        {Sentence.PERSON, Sentence.JOB, Sentence.COLOR},
+        {Sentence.PERSON, Sentence.JOB},
+        {Sentence.PERSON, Sentence.COLOR},
+        {Sentence.JOB, Sentence.COLOR},
+    };
+
+    /** The kind of set in a Domains that holds the candidates of each
+     *  kind of entity for each other kind, indexed by the two kinds. */
+    private static final int[][] DOMAINS = {
+        {-1, Domains.PERSON_JOBS, Domains.PERSON_COLORS},
+        {Domains.JOB_PEOPLE, -1, Domains.JOB_COLORS},
+        {Domains.COLOR_PEOPLE, Domains.COLOR_JOBS, -1},
+    };
+
+    /** The answer to a broad question about something of which nothing
+     *  is known. */
+    private static final String NOTHING = "Nothing.";
+
+    /** The answer to a specific question about something not known. */
+    private static final String DONT_KNOW = "I don't know.";
+
+    /** The line that begins answers to an impossible puzzle. */
+    private static final String IMPOSSIBLE = "impossible";
+
+    /** The line that begins answers to a possible puzzle. */
+    private static final String POSSIBLE = "possible";
+
+    /** The word written in place of an entity that is not known. */
+    private static final String UNKNOWN = "-";
+
+    /** True iff the puzzle I answer is impossible. */
+    private final boolean impossible;
+
+    /** The name of each named entity as it appears in an answer, indexed
+     *  by kind and then by id.  People's names are capitalized. */
+    private final String[][] names;
+
+    /** The id of the named entity of each kind that each named entity is
+     *  known to go with, or -1, indexed by kind and then by id times
+     *  Sentence.KINDS plus the other kind. */
+    private final int[][] known;
+
+    /** The answers to what is known of DOMAINS, in which the first
+     *  NAMED[kind] entities of each kind are named by PEOPLE, JOBS, and
+     *  COLORS, and the rest are anonymous.  The puzzle is IMPOSSIBLE, or
+     *  not. */
+    Answers(Domains domains, int[] named, boolean impossible,
+            ArrayList<String> people, ArrayList<String> jobs,
+            ArrayList<String> colors) {
+        this.impossible = impossible;
+        this.names = names(people, jobs, colors, named);
+        this.known = new int[Sentence.KINDS][];
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            this.known[kind] = new int[named[kind] * Sentence.KINDS];
+            for (int id = 0; id < named[kind]; id += 1) {
+                for (int other = 0; other < Sentence.KINDS; other += 1) {
+                    int k = id * Sentence.KINDS + other;
+                    if (other == kind) {
+                        this.known[kind][k] = id;
+                        continue;
+                    }
+                    int domain = DOMAINS[kind][other];
+                    int match = domains.size(domain, id) == 1
+                            ? domains.first(domain, id) : -1;
+                    this.known[kind][k] = match < named[other] ? match : -1;
+                }
+            }
+        }
+    }
+
+    /** The answers to a puzzle that is IMPOSSIBLE, or not, whose entities
+     *  have NAMES, and of which KNOWN is known. */
+    private Answers(boolean impossible, String[][] names, int[][] known) {
+        this.impossible = impossible;
+        this.names = names;
+        this.known = known;
+    }
+
+    /** Return the names of the first NAMED[kind] of PEOPLE, JOBS, and
+     *  COLORS, as they appear in answers, indexed by kind. */
+    private static String[][] names(ArrayList<String> people,
+            ArrayList<String> jobs, ArrayList<String> colors, int[] named) {
+        String[][] result = new String[Sentence.KINDS][];
+        result[Sentence.PERSON] = new String[named[Sentence.PERSON]];
+        for (int i = 0; i < named[Sentence.PERSON]; i += 1) {
+            String name = people.get(i);
+            result[Sentence.PERSON][i] =
+                    Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        result[Sentence.JOB] = jobs.subList(0, named[Sentence.JOB])
+                .toArray(new String[0]);
+        result[Sentence.COLOR] = colors.subList(0, named[Sentence.COLOR])
+                .toArray(new String[0]);
+        return result;
+    }
+
+    /** Return true iff the puzzle I answer is impossible. */
+    boolean impossible() {
+        return this.impossible;
+    }
+
+    /** Write me to OUTPUT, in terms of the labels that FORM gives my
+     *  entities: whether the puzzle is impossible, and then, for each
+     *  kind, the number of its named entities followed by a line for each
+     *  of them, in order of label, giving the labels of the entities of
+     *  the other kinds known to go with it, or "-". */
+    void write(Writer output, Canonical form) throws IOException {
+        output.write(this.impossible ? IMPOSSIBLE : POSSIBLE);
+        output.write('\n');
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            output.write(Integer.toString(this.names[kind].length));
+            output.write('\n');
+            for (int label = 0; label < this.names[kind].length;
+                    label += 1) {
+                int id = form.id(kind, label);
+                String separator = "";
+                for (int other = 0; other < Sentence.KINDS; other += 1) {
+                    if (other != kind) {
+                        int match = this.known[kind][id * Sentence.KINDS
+                                + other];
+                        output.write(separator);
+                        output.write(match == -1 ? UNKNOWN
+                                : Integer.toString(form.label(other, match)));
+                        separator = " ";
+                    }
+                }
+                output.write('\n');
+            }
+        }
+    }
+
+    /** Return the answers that write wrote to INPUT, for PUZZLE, whose
+     *  canonical form is FORM. */
+    static Answers read(BufferedReader input, Parser puzzle, Canonical form)
+            throws IOException {
+        String first = input.readLine();
+        if (!IMPOSSIBLE.equals(first) && !POSSIBLE.equals(first)) {
+            throw new IOException("unrecognized answers");
+        }
+        int[] named = new int[Sentence.KINDS];
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            named[kind] = puzzle.names(kind).size();
+        }
+        String[][] names = names(puzzle.names(Sentence.PERSON),
+                puzzle.names(Sentence.JOB), puzzle.names(Sentence.COLOR),
+                named);
+        int[][] known = new int[Sentence.KINDS][];
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            known[kind] = new int[named[kind] * Sentence.KINDS];
+            if (!Integer.toString(named[kind]).equals(input.readLine())) {
+                throw new IOException("answers for other entities");
+            }
+            for (int label = 0; label < named[kind]; label += 1) {
+                String line = input.readLine();
+                String[] words = line == null ? new String[0]
+                        : line.split(" ");
+                if (words.length != Sentence.KINDS - 1) {
+                    throw new IOException("unrecognized answers");
+                }
+                int id = form.id(kind, label);
+                int word = 0;
+                for (int other = 0; other < Sentence.KINDS; other += 1) {
+                    int match = id;
+                    if (other != kind) {
+                        match = id(form, other, named[other], words[word]);
+                        word += 1;
+                    }
+                    known[kind][id * Sentence.KINDS + other] = match;
+                }
+            }
+        }
+        return new Answers(IMPOSSIBLE.equals(first), names, known);
+    }
+
+    /** Return the id of the entity of KIND whose label in FORM is WORD, or
+     *  -1 if WORD is "-".  There are NAMED entities of KIND. */
+    private static int id(Canonical form, int kind, int named, String word)
+            throws IOException {
+        if (word.equals(UNKNOWN)) {
+            return -1;
+        }
+        int label;
+        try {
+            label = Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            label = -1;
+        }
+        if (label < 0 || label >= named) {
+            throw new IOException("unrecognized answers");
+        }
+        return form.id(kind, label);
+    }
+
+    /** Return the answer to a question of TYPE about the entity with id
+     *  ID. */
+    String answer(Sentence.Type type, int id) {
+        int kind = type.kind(0);
+        int asked = asked(type);
+        if (asked != -1) {
+            if (!known(kind, id, asked)) {
+                return DONT_KNOW;
+            }
+            return fill(template(kind, asked), kind, id);
+        }
+        int first = kind == Sentence.PERSON ? Sentence.JOB : Sentence.PERSON;
+        int second = kind == Sentence.COLOR ? Sentence.JOB : Sentence.COLOR;
+        boolean firstKnown = known(kind, id, first);
+        boolean secondKnown = known(kind, id, second);
+        if (firstKnown && secondKnown) {
+            return fill(EVERYTHING, kind, id);
+        } else if (firstKnown) {
+            return fill(template(kind, first), kind, id);
+        } else if (secondKnown) {
+            return fill(template(kind, second), kind, id);
+        }
+        return NOTHING;
+    }
+
+    /** Return true iff the entity of KIND with id ID is known to go with
+     *  a named entity of kind OTHER. */
+    private boolean known(int kind, int id, int other) {
+        return this.known[kind][id * Sentence.KINDS + other] != -1;
+    }
+
+    /** Return the TEMPLATE filled in with what is known of the entity of
+     *  KIND with id ID. */
+    private String fill(int template, int kind, int id) {
+        StringBuilder result = new StringBuilder();
+        int[] row = this.known[kind];
+        String[] texts = TEXTS[template];
+        int[] kinds = KINDS[template];
+        for (int k = 0; k < kinds.length; k += 1) {
+            result.append(texts[k]).append(
+                    this.names[kinds[k]][row[id * Sentence.KINDS + kinds[k]]]);
+        }
+        return result.append(texts[kinds.length]).toString();
+    }
+
+    /** Return the template that relates entities of kinds KIND and
+     *  OTHER. */
+    private static int template(int kind, int other) {
+        if (kind != Sentence.PERSON && other != Sentence.PERSON) {
+            return JOB_AND_COLOR;
+        } else if (kind == Sentence.JOB || other == Sentence.JOB) {
+            return PERSON_AND_JOB;
+        }
+        return PERSON_AND_COLOR;
+    }
+
+    /** Return the kind of entity that a question of TYPE asks for, or -1
+     *  if it asks for everything known. */
+    private static int asked(Sentence.Type type) {
+        switch (type) {
+        case PERSON_OF_JOB:
+        case PERSON_OF_COLOR:
+            return Sentence.PERSON;
+        case JOB_OF_PERSON:
+        case JOB_OF_COLOR:
+            return Sentence.JOB;
+        case COLOR_OF_PERSON:
+        case COLOR_OF_JOB:
+            return Sentence.COLOR;
+        default:
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package puzzle;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+
+/** The suite of performance benchmarks for the Puzzle Solver.  Each
+ *  benchmark times one operation on random puzzles of several sizes and
+ *  densities, first running it until the JIT compiler has had a chance
+ *  to settle, and then timing it, and counting the bytes it allocates,
+ *  over many runs.  Whatever an operation needs is made before it is
+ *  timed.  Usage:
+ *
+ *      java puzzle.Benchmark [--sizes=N,...] [--densities=D,...]
+ *                            [--hardness=H] [--time=MILLIS]
+ *                            [BENCHMARK...]
+ *
+ *  where each BENCHMARK is one of parse, inform, makeInferences,
+ *  exploreBranches, cloneSolver, and getAnswer, all of which are run if
+ *  none is given.  The puzzles are made by a Generator, with its sizes,
+ *  densities, and hardnesses; puzzles too small to be of hardness H are
+ *  solved by propagation instead.  The bytes allocated by an operation
+ *  are those allocated by every thread while it runs, so that they
+ *  include what the workers of a parallel search allocate, less what is
+ *  allocated to count them; allocations made meanwhile by the JVM's own
+ *  threads are counted too.
+ *  @author Tanner Wauchope */
+public class Benchmark {
+
+    /** The sizes of puzzle benchmarked, unless told otherwise. */
+    private static final int[] DEFAULT_SIZES = {3, 10, 30, 100, 300};
+
+    /** The densities of puzzle benchmarked, unless told otherwise. */
+    private static final double[] DEFAULT_DENSITIES = {0.4, 0.7, 1.0};
+
+    /** The hardness of the puzzles benchmarked, unless told otherwise. */
+    private static final Generator.Hardness DEFAULT_HARDNESS =
+            Generator.Hardness.ONE_GUESS;
+
+    /** The milliseconds for which each benchmark is warmed up, and then
+     *  timed, unless told otherwise. */
+    private static final int DEFAULT_MILLIS = 1000;
+
+    /** The seed of the random puzzles, so that every run benchmarks the
+     *  same ones. */
+    private static final long SEED = 20141116L;
+
+    /** The fewest runs that are timed, however long they take. */
+    private static final int MIN_RUNS = 5;
+
+    /** The names of the benchmarks, in the order they are run. */
+    private static final String[] NAMES = {"parse", "inform",
+        "makeInferences", "exploreBranches", "cloneSolver", "getAnswer"};
+
+    /** The threads' counts of allocated bytes, or null if this JVM does
+     *  not count them. */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            allocations();
+
+    /** The results of the operations benchmarked, kept so that the
+     *  compiler cannot do away with the operations. */
+    private static volatile int sink;
+
+    /** Run the benchmarks named by ARGS, as described above. */
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        double[] densities = DEFAULT_DENSITIES;
+        Generator.Hardness hardness = DEFAULT_HARDNESS;
+        int millis = DEFAULT_MILLIS;
+        ArrayList<String> names = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                String[] words = arg.substring("--sizes=".length())
+                        .split(",");
+                sizes = new int[words.length];
+                for (int i = 0; i < words.length; i += 1) {
+                    sizes[i] = Integer.parseInt(words[i]);
+                }
+            } else if (arg.startsWith("--densities=")) {
+                String[] words = arg.substring("--densities=".length())
+                        .split(",");
+                densities = new double[words.length];
+                for (int i = 0; i < words.length; i += 1) {
+                    densities[i] = Double.parseDouble(words[i]);
+                }
+            } else if (arg.startsWith("--hardness=")) {
+                hardness = Generator.hardness(
+                        arg.substring("--hardness=".length()));
+            } else if (arg.startsWith("--time=")) {
+                millis = Integer.parseInt(arg.substring("--time=".length()));
+            } else {
+                names.add(arg);
+            }
+        }
+        if (names.isEmpty()) {
+            for (String name : NAMES) {
+                names.add(name);
+            }
+        }
+        System.out.printf("%-16s %6s %8s %9s %14s %14s%n", "benchmark",
+                "size", "density", "runs", "ns/op", "bytes/op");
+        for (String name : names) {
+            for (int size : sizes) {
+                for (double density : densities) {
+                    String text = new Generator(SEED, size,
+                            Generator.fits(size, hardness) ? hardness
+                            : Generator.Hardness.PROPAGATION, density)
+                            .puzzle(0);
+                    report(name, size, density,
+                            measure(operation(name, text), millis));
+                }
+            }
+        }
+    }
+
+    /** An operation to benchmark. */
+    private abstract static class Operation {
+
+        /** Return what one run of me needs, which is made before the run
+         *  is timed. */
+        Object prepare() {
+            return null;
+        }
+
+        /** Run me once on STATE, made by prepare, and return something
+         *  that depends on what I did. */
+        abstract Object run(Object state);
+    }
+
+    /** Return the operation of the benchmark NAME, on the puzzle whose
+     *  text is TEXT. */
+    private static Operation operation(String name, final String text) {
+        final Parser puzzle = Parser.parse(new StringReader(text));
+        if (name.equals("parse")) {
+            return new Operation() {
+                @Override
+                Object run(Object state) {
+                    return Parser.parse(new StringReader(text));
+                }
+            };
+        } else if (name.equals("inform")) {
+            return new Operation() {
+                @Override
+                Object run(Object state) {
+                    return puzzle.inform(new Solver());
+                }
+            };
+        } else if (name.equals("makeInferences")) {
+            return new Operation() {
+                @Override
+                Object prepare() {
+                    Solver result = new Solver();
+                    result.setParameters(puzzle.getPeople(),
+                            puzzle.getJobs(), puzzle.getColors());
+                    for (int i = 0; i < puzzle.numAssertions(); i += 1) {
+                        puzzle.inform(result, i);
+                    }
+                    return result;
+                }
+
+                @Override
+                Object run(Object state) {
+                    ((Solver) state).makeInferences();
+                    return state;
+                }
+            };
+        } else if (name.equals("exploreBranches")) {
+            final Solver propagated = puzzle.propagate(new Solver());
+            return new Operation() {
+                @Override
+                Object prepare() {
+                    return Solver.cloneSolver(propagated);
+                }
+
+                @Override
+                Object run(Object state) {
+                    return ((Solver) state).exploreBranches();
+                }
+            };
+        } else if (name.equals("cloneSolver")) {
+            final Solver propagated = puzzle.propagate(new Solver());
+            return new Operation() {
+                @Override
+                Object run(Object state) {
+                    return Solver.cloneSolver(propagated);
+                }
+            };
+        } else if (name.equals("getAnswer")) {
+            final Solver solution = puzzle.inform(new Solver());
+            return new Operation() {
+                @Override
+                Object run(Object state) {
+                    int length = 0;
+                    for (int i = 0; i < puzzle.numQuestions(); i += 1) {
+                        length += puzzle.getAnswer(solution, i).length();
+                    }
+                    return length;
+                }
+            };
+        }
+        throw new IllegalArgumentException("no benchmark " + name);
+    }
+
+    /** Return the number of runs of OPERATION, the nanoseconds they took,
+     *  and the bytes they allocated, or -1 bytes if that is not known,
+     *  timing it for MILLIS milliseconds after warming it up for as
+     *  long. */
+    private static long[] measure(Operation operation, int millis) {
+        long[] result = new long[3];
+        for (int pass = 0; pass < 2; pass += 1) {
+            long[] totals = new long[3];
+            long overhead = overhead();
+            long end = System.nanoTime() + millis * 1000000L;
+            while (totals[0] < MIN_RUNS || System.nanoTime() < end) {
+                Object state = operation.prepare();
+                long bytes = allocated();
+                long start = System.nanoTime();
+                Object value = operation.run(state);
+                totals[1] += System.nanoTime() - start;
+                totals[2] += Math.max(0, allocated() - bytes - overhead);
+                totals[0] += 1;
+                sink += value == null ? 0 : value.hashCode();
+            }
+            result = totals;
+        }
+        if (ALLOCATIONS == null) {
+            result[2] = -1;
+        }
+        return result;
+    }
+
+    /** Print the RESULT of measure for the benchmark NAME, run on puzzles
+     *  of SIZE and DENSITY. */
+    private static void report(String name, int size, double density,
+            long[] result) {
+        System.out.printf("%-16s %6d %8.2f %9d %14d %14s%n", name, size,
+                density, result[0], result[1] / result[0],
+                result[2] < 0 ? "-" : Long.toString(result[2] / result[0]));
+    }
+
+    /** Return the number of bytes the live threads have allocated, or 0
+     *  if that is not known. */
+    private static long allocated() {
+        if (ALLOCATIONS == null) {
+            return 0;
+        }
+        long result = 0;
+        for (long bytes : ALLOCATIONS.getThreadAllocatedBytes(
+                ALLOCATIONS.getAllThreadIds())) {
+            result += Math.max(0, bytes);
+        }
+        return result;
+    }
+
+    /** Return the fewest bytes allocated between two calls of allocated
+     *  with nothing else between them, which is what counting the bytes
+     *  allocated by the threads now alive allocates itself. */
+    private static long overhead() {
+        long result = Long.MAX_VALUE;
+        for (int i = 0; i < MIN_RUNS; i += 1) {
+            long bytes = allocated();
+            result = Math.min(result, allocated() - bytes);
+        }
+        return result;
+    }
+
+    /** Return the threads' counts of allocated bytes, turned on, or null
+     *  if this JVM does not count them. */
+    private static com.sun.management.ThreadMXBean allocations() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean result =
+                (com.sun.management.ThreadMXBean) threads;
+        if (!result.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        result.setThreadAllocatedMemoryEnabled(true);
+        return result;
+    }
+}
@@ -0,0 +1,529 @@
+package puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+/** The form of a puzzle's assertions that is the same for every puzzle
+ *  that makes them, whatever it calls its people, jobs, and colors, and
+ *  in whatever order it makes them.  The assertions are taken as a graph
+ *  whose vertices are the named entities and whose edges are the
+ *  assertions relating two of them, and the entities are given labels by
+ *  canonical graph labeling.  Each connected part of the graph is labeled
+ *  by itself: colors of vertices are refined by the colors of their
+ *  neighbors until they settle, and then, while some vertices still share
+ *  a color, one of them is singled out and the colors are refined again.
+ *  Every way of singling them out is tried, except where vertices have
+ *  the same neighbors and so are interchangeable, and the labeling that
+ *  lists the part's edges first in sorted order is kept.  The parts are
+ *  then numbered in order of their labeled edges.  The form is the number
+ *  of entities of each kind followed by the sorted edges, by label.  A
+ *  part so symmetric that trying every way would take too long is labeled
+ *  by the first ways tried instead, which may give a renamed copy of it
+ *  another form, but never gives two puzzles that differ the same one.
+ *  @author Tanner Wauchope */
+class Canonical {
+
+    /** The most times that colors may be refined after the first labeling
+     *  of a part has been found, per vertex of the part. */
+    private static final int REFINEMENTS_PER_VERTEX = 1;
+
+    /** The number of named entities of each kind. */
+    private final int[] named;
+
+    /** The label of the entity of each kind with each id, by kind and then
+     *  by id. */
+    private final int[][] labels;
+
+    /** The entity of each kind with each label, by kind and then by
+     *  label. */
+    private final int[][] ids;
+
+    /** The edges, three ints apiece: the kind of edge, and then the labels
+     *  of the entities it joins, the one of the lesser kind first, in
+     *  sorted order. */
+    private final int[] edges;
+
+    /** The canonical form of ASSERTIONS, which name NAMED[kind] entities
+     *  of each kind. */
+    Canonical(ArrayList<Sentence> assertions, int[] named) {
+        this.named = named.clone();
+        Graph graph = new Graph(this.named, edges(assertions, named));
+        ArrayList<Graph> parts = graph.parts();
+        Collections.sort(parts, new Comparator<Graph>() {
+            @Override
+            public int compare(Graph a, Graph b) {
+                int result = compareInts(a.named, b.named);
+                return result != 0 ? result : compareInts(a.best, b.best);
+            }
+        });
+        this.labels = new int[Sentence.KINDS][];
+        this.ids = new int[Sentence.KINDS][];
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            this.labels[kind] = new int[named[kind]];
+            this.ids[kind] = new int[named[kind]];
+        }
+        int[] next = new int[Sentence.KINDS];
+        for (Graph part : parts) {
+            for (int v = 0; v < part.vertices; v += 1) {
+                int kind = part.kindOf(v);
+                int id = part.originals[v] - graph.offsets[kind];
+                int label = next[kind] + part.labels[v];
+                this.labels[kind][id] = label;
+                this.ids[kind][label] = id;
+            }
+            for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+                next[kind] += part.named[kind];
+            }
+        }
+        long[] keys = new long[graph.edges.length / 3];
+        for (int k = 0; k < graph.edges.length; k += 3) {
+            keys[k / 3] = key(graph.edges[k], labelOf(graph,
+                    graph.edges[k + 1]), labelOf(graph, graph.edges[k + 2]),
+                    graph.vertices);
+        }
+        this.edges = unkey(keys, keys.length, graph.vertices);
+    }
+
+    /** Return the label of the entity of KIND with id ID. */
+    int label(int kind, int id) {
+        return this.labels[kind][id];
+    }
+
+    /** Return the id of the entity of KIND with label LABEL. */
+    int id(int kind, int label) {
+        return this.ids[kind][label];
+    }
+
+    /** Return the lines of this form: the number of entities of each
+     *  kind, and then each edge, as its kind and the labels of the two
+     *  entities it joins. */
+    ArrayList<String> lines() {
+        ArrayList<String> result = new ArrayList<String>();
+        result.add(this.named[Sentence.PERSON] + " "
+                + this.named[Sentence.JOB] + " " + this.named[Sentence.COLOR]);
+        for (int k = 0; k < this.edges.length; k += 3) {
+            result.add(this.edges[k] + " " + this.edges[k + 1] + " "
+                    + this.edges[k + 2]);
+        }
+        return result;
+    }
+
+    /** Return the label of vertex V of GRAPH, the graph of my entities. */
+    private int labelOf(Graph graph, int v) {
+        int kind = graph.kindOf(v);
+        return this.labels[kind][v - graph.offsets[kind]];
+    }
+
+    /** Return the distinct edges of the graph of ASSERTIONS, which name
+     *  NAMED[kind] entities of each kind, as in Graph.edges. */
+    private static int[] edges(ArrayList<Sentence> assertions, int[] named) {
+        int vertices = named[Sentence.PERSON] + named[Sentence.JOB]
+                + named[Sentence.COLOR];
+        long[] keys = new long[assertions.size()];
+        int count = 0;
+        for (Sentence assertion : assertions) {
+            Sentence.Type type = assertion.type();
+            if (type.entities() < 2) {
+                continue;
+            }
+            int code = 2 * relation(type.kind(0), type.kind(1))
+                    + (denies(type) ? 1 : 0);
+            int a = assertion.entity(0);
+            int b = assertion.entity(1);
+            for (int kind = 0; kind < type.kind(0); kind += 1) {
+                a += named[kind];
+            }
+            for (int kind = 0; kind < type.kind(1); kind += 1) {
+                b += named[kind];
+            }
+            keys[count] = key(code, a, b, vertices);
+            count += 1;
+        }
+        return unkey(keys, count, vertices);
+    }
+
+    /** Return the key of the edge of kind CODE joining A and B, two of
+     *  VERTICES vertices, which sorts as the edge does. */
+    private static long key(int code, int a, int b, int vertices) {
+        return ((long) code * vertices + a) * vertices + b;
+    }
+
+    /** Return the distinct edges of the first COUNT of KEYS, made by key
+     *  with VERTICES, three ints apiece, in sorted order. */
+    private static int[] unkey(long[] keys, int count, int vertices) {
+        Arrays.sort(keys, 0, count);
+        int[] result = new int[3 * count];
+        int distinct = 0;
+        for (int k = 0; k < count; k += 1) {
+            if (k > 0 && keys[k] == keys[k - 1]) {
+                continue;
+            }
+            result[3 * distinct] = (int) (keys[k] / vertices / vertices);
+            result[3 * distinct + 1] = (int) (keys[k] / vertices % vertices);
+            result[3 * distinct + 2] = (int) (keys[k] % vertices);
+            distinct += 1;
+        }
+        return Arrays.copyOf(result, 3 * distinct);
+    }
+
+    /** Return the relation, such as Solver.PERSON_JOB, between entities
+     *  of kinds FIRST and SECOND. */
+    private static int relation(int first, int second) {
+        if (first == Sentence.PERSON) {
+            return second == Sentence.JOB ? Solver.PERSON_JOB
+                    : Solver.PERSON_COLOR;
+        }
+        return Solver.JOB_COLOR;
+    }
+
+    /** Return true iff an assertion of TYPE denies the relation between
+     *  the entities it names. */
+    private static boolean denies(Sentence.Type type) {
+        switch (type) {
+        case PERSON_NOT_WITH_COLOR:
+        case JOB_NOT_WITH_COLOR:
+        case PERSON_NOT_WITH_JOB:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /** Return a negative number, zero, or a positive number as A sorts
+     *  before, with, or after B, comparing their elements in order. */
+    private static int compareInts(int[] a, int[] b) {
+        for (int k = 0; k < a.length && k < b.length; k += 1) {
+            if (a[k] != b[k]) {
+                return Integer.compare(a[k], b[k]);
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /** A graph of entities, numbered so that the people come first, then
+     *  the jobs, and then the colors. */
+    private static class Graph {
+
+        /** The number of vertices of each kind. */
+        private final int[] named;
+
+        /** The number of the first vertex of each kind. */
+        private final int[] offsets;
+
+        /** The number of vertices. */
+        private final int vertices;
+
+        /** The edges, three ints apiece: the kind of edge, and then the
+         *  vertices it joins, the one of the lesser kind first. */
+        private final int[] edges;
+
+        /** The edges of each vertex, as the kind of edge times
+         *  this.vertices plus the other vertex, in sorted order. */
+        private final int[][] adjacent;
+
+        /** The vertex of the graph I am a part of that each of my vertices
+         *  is, or null if I am not a part of one. */
+        private int[] originals;
+
+        /** The number of times colors may yet be refined once the first
+         *  labeling has been found. */
+        private int budget;
+
+        /** The edges of the best labeling found so far, as the kind of
+         *  edge and the labels of the vertices it joins, in sorted order,
+         *  or null if none has been found. */
+        private int[] best;
+
+        /** The label of each vertex in the best labeling found so far,
+         *  which numbers the vertices of each kind from 0. */
+        private int[] labels;
+
+        /** A graph of NAMED[kind] vertices of each kind, with EDGES. */
+        Graph(int[] named, int[] edges) {
+            this.named = named;
+            this.offsets = new int[Sentence.KINDS];
+            int total = 0;
+            for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+                this.offsets[kind] = total;
+                total += named[kind];
+            }
+            this.vertices = total;
+            this.edges = edges;
+            this.adjacent = adjacent();
+        }
+
+        /** Return my connected parts, each with its best labeling. */
+        ArrayList<Graph> parts() {
+            int[] part = new int[this.vertices];
+            Arrays.fill(part, -1);
+            int parts = 0;
+            int[] queue = new int[this.vertices];
+            for (int v = 0; v < this.vertices; v += 1) {
+                if (part[v] != -1) {
+                    continue;
+                }
+                part[v] = parts;
+                queue[0] = v;
+                int end = 1;
+                for (int k = 0; k < end; k += 1) {
+                    for (int edge : this.adjacent[queue[k]]) {
+                        int w = edge % this.vertices;
+                        if (part[w] == -1) {
+                            part[w] = parts;
+                            queue[end] = w;
+                            end += 1;
+                        }
+                    }
+                }
+                parts += 1;
+            }
+            int[][] named = new int[parts][Sentence.KINDS];
+            int[] numbers = new int[this.vertices];
+            for (int v = 0; v < this.vertices; v += 1) {
+                int kind = kindOf(v);
+                numbers[v] = named[part[v]][kind];
+                named[part[v]][kind] += 1;
+            }
+            int[][] offsets = new int[parts][Sentence.KINDS];
+            int[] sizes = new int[parts];
+            for (int p = 0; p < parts; p += 1) {
+                offsets[p][Sentence.JOB] = named[p][Sentence.PERSON];
+                offsets[p][Sentence.COLOR] = named[p][Sentence.PERSON]
+                        + named[p][Sentence.JOB];
+            }
+            for (int k = 0; k < this.edges.length; k += 3) {
+                sizes[part[this.edges[k + 1]]] += 3;
+            }
+            int[][] edges = new int[parts][];
+            for (int p = 0; p < parts; p += 1) {
+                edges[p] = new int[sizes[p]];
+                sizes[p] = 0;
+            }
+            for (int k = 0; k < this.edges.length; k += 3) {
+                int a = this.edges[k + 1];
+                int b = this.edges[k + 2];
+                int p = part[a];
+                edges[p][sizes[p]] = this.edges[k];
+                edges[p][sizes[p] + 1] = offsets[p][kindOf(a)] + numbers[a];
+                edges[p][sizes[p] + 2] = offsets[p][kindOf(b)] + numbers[b];
+                sizes[p] += 3;
+            }
+            ArrayList<Graph> result = new ArrayList<Graph>();
+            for (int p = 0; p < parts; p += 1) {
+                Graph graph = new Graph(named[p], edges[p]);
+                graph.originals = new int[graph.vertices];
+                result.add(graph);
+            }
+            for (int v = 0; v < this.vertices; v += 1) {
+                int p = part[v];
+                result.get(p).originals[offsets[p][kindOf(v)] + numbers[v]] =
+                        v;
+            }
+            for (Graph graph : result) {
+                graph.label();
+            }
+            return result;
+        }
+
+        /** Find the best labeling of my vertices. */
+        private void label() {
+            int[] colors = new int[this.vertices];
+            for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+                Arrays.fill(colors, this.offsets[kind],
+                        this.offsets[kind] + this.named[kind], kind);
+            }
+            this.budget = REFINEMENTS_PER_VERTEX * this.vertices;
+            search(colors);
+        }
+
+        /** Return the edges of each vertex, as in this.adjacent. */
+        private int[][] adjacent() {
+            int[] degrees = new int[this.vertices];
+            for (int k = 0; k < this.edges.length; k += 3) {
+                degrees[this.edges[k + 1]] += 1;
+                degrees[this.edges[k + 2]] += 1;
+            }
+            int[][] result = new int[this.vertices][];
+            for (int v = 0; v < this.vertices; v += 1) {
+                result[v] = new int[degrees[v]];
+                degrees[v] = 0;
+            }
+            for (int k = 0; k < this.edges.length; k += 3) {
+                int code = this.edges[k];
+                int a = this.edges[k + 1];
+                int b = this.edges[k + 2];
+                result[a][degrees[a]] = code * this.vertices + b;
+                degrees[a] += 1;
+                result[b][degrees[b]] = code * this.vertices + a;
+                degrees[b] += 1;
+            }
+            for (int[] edges : result) {
+                Arrays.sort(edges);
+            }
+            return result;
+        }
+
+        /** Try every labeling that follows from the vertex colors COLORS,
+         *  keeping the best. */
+        private void search(int[] colors) {
+            if (this.best != null) {
+                if (this.budget <= 0) {
+                    return;
+                }
+                this.budget -= 1;
+            }
+            int cells = refine(colors);
+            if (cells == this.vertices) {
+                consider(colors);
+                return;
+            }
+            int[] sizes = new int[this.vertices];
+            for (int v = 0; v < this.vertices; v += 1) {
+                sizes[colors[v]] += 1;
+            }
+            int target = 0;
+            while (sizes[target] < 2) {
+                target += 1;
+            }
+            if (isTwins(colors, target)) {
+                int[] child = new int[this.vertices];
+                int next = target;
+                for (int w = 0; w < this.vertices; w += 1) {
+                    if (colors[w] == target) {
+                        child[w] = next;
+                        next += 1;
+                    } else {
+                        child[w] = colors[w] < target ? colors[w]
+                                : colors[w] + sizes[target] - 1;
+                    }
+                }
+                search(child);
+                return;
+            }
+            ArrayList<Integer> tried = new ArrayList<Integer>();
+            for (int v = 0; v < this.vertices; v += 1) {
+                if (this.best != null && this.budget <= 0) {
+                    return;
+                } else if (colors[v] != target || isTwin(v, tried)) {
+                    continue;
+                }
+                tried.add(v);
+                int[] child = new int[this.vertices];
+                for (int w = 0; w < this.vertices; w += 1) {
+                    child[w] = 2 * colors[w] + (w == v ? 0 : 1);
+                }
+                search(child);
+            }
+        }
+
+        /** Return true iff every vertex whose color in COLORS is TARGET
+         *  has the same edges, so that they may be put in one another's
+         *  places in any order. */
+        private boolean isTwins(int[] colors, int target) {
+            int first = -1;
+            for (int v = 0; v < this.vertices; v += 1) {
+                if (colors[v] != target) {
+                    continue;
+                } else if (first == -1) {
+                    first = v;
+                } else if (!Arrays.equals(this.adjacent[first],
+                        this.adjacent[v])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Return true iff the vertex V has the same edges as one of
+         *  TRIED, so that either could be put in the other's place. */
+        private boolean isTwin(int v, ArrayList<Integer> tried) {
+            for (int u : tried) {
+                if (Arrays.equals(this.adjacent[u], this.adjacent[v])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Refine COLORS, in place, until every two vertices of a color
+         *  have the same number of edges of each kind to vertices of each
+         *  color.  Colors are numbered from 0, in an order that depends
+         *  only on the colors they were refined from and on the shape of
+         *  the graph.  Return the number of colors. */
+        private int refine(final int[] colors) {
+            Integer[] order = new Integer[this.vertices];
+            for (int v = 0; v < this.vertices; v += 1) {
+                order[v] = v;
+            }
+            int cells = -1;
+            while (true) {
+                final int[][] signatures = new int[this.vertices][];
+                for (int v = 0; v < this.vertices; v += 1) {
+                    int[] signature = new int[this.adjacent[v].length + 1];
+                    signature[0] = colors[v];
+                    for (int k = 0; k < this.adjacent[v].length; k += 1) {
+                        int edge = this.adjacent[v][k];
+                        signature[k + 1] = edge / this.vertices
+                                * this.vertices
+                                + colors[edge % this.vertices];
+                    }
+                    Arrays.sort(signature, 1, signature.length);
+                    signatures[v] = signature;
+                }
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer a, Integer b) {
+                        return compareInts(signatures[a], signatures[b]);
+                    }
+                });
+                int count = 0;
+                for (int k = 0; k < this.vertices; k += 1) {
+                    if (k > 0 && compareInts(signatures[order[k - 1]],
+                            signatures[order[k]]) != 0) {
+                        count += 1;
+                    }
+                    colors[order[k]] = count;
+                }
+                count += 1;
+                if (count == cells) {
+                    return count;
+                }
+                cells = count;
+            }
+        }
+
+        /** Keep the labeling given by COLORS, in which every vertex has a
+         *  color of its own, if it is better than the best so far. */
+        private void consider(int[] colors) {
+            long[] keys = new long[this.edges.length / 3];
+            for (int k = 0; k < this.edges.length; k += 3) {
+                keys[k / 3] = key(this.edges[k], colors[this.edges[k + 1]],
+                        colors[this.edges[k + 2]], this.vertices);
+            }
+            int[] certificate = unkey(keys, keys.length, this.vertices);
+            for (int k = 0; k < certificate.length; k += 3) {
+                certificate[k + 1] -= this.offsets[kindOf(certificate[k + 1])];
+                certificate[k + 2] -= this.offsets[kindOf(certificate[k + 2])];
+            }
+            if (this.best == null || compareInts(certificate, this.best) < 0) {
+                this.best = certificate;
+                this.labels = new int[this.vertices];
+                for (int v = 0; v < this.vertices; v += 1) {
+                    this.labels[v] = colors[v] - this.offsets[kindOf(v)];
+                }
+            }
+        }
+
+        /** Return the kind of vertex V, or of the vertex with color V in a
+         *  labeling. */
+        private int kindOf(int v) {
+            int result = Sentence.KINDS - 1;
+            while (v < this.offsets[result]) {
+                result -= 1;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/** The candidate attributes of every entity in a puzzle.  Each candidate
+ *  set is a bitset over the indices of the entities of one type, packed
+ *  into a single long for puzzles of up to 64 entities and into
+ *  consecutive longs for larger puzzles.  While trailing, every changed
+ *  word is recorded so that changes can be undone back to a mark.
+ *  @author Tanner Wauchope */
+class Domains {
+
+    /** The jobs a person may have. */
+    static final int PERSON_JOBS = 0;
+
+    /** The colors a person may live in. */
+    static final int PERSON_COLORS = 1;
+
+    /** The people who may have a job. */
+    static final int JOB_PEOPLE = 2;
+
+    /** The colors in which the holder of a job may live. */
+    static final int JOB_COLORS = 3;
+
+    /** The people who may live in a color. */
+    static final int COLOR_PEOPLE = 4;
+
+    /** The jobs whose holders may live in a color. */
+    static final int COLOR_JOBS = 5;
+
+    /** The number of kinds of candidate sets. */
+    private static final int KINDS = 6;
+
+    /** The number of bits in a word of this.words. */
+    private static final int WORD_SIZE = 64;
+
+    /** The number of entities of each type. */
+    private final int complexity;
+
+    /** The number of words in a single candidate set. */
+    private final int stride;
+
+    /**
+     *  Every candidate set, one after another.  The set of KIND for the
+     *  entity at index E begins at word (KIND * complexity + E) * stride.
+     */
+    private final long[] words;
+
+    /** True iff changes to this.words are being recorded on the trail. */
+    private boolean trailing;
+
+    /** The index in this.words of every word changed while trailing, in
+     *  the order of the changes. */
+    private int[] trailWords;
+
+    /** The value each word of this.trailWords had before it changed. */
+    private long[] trailValues;
+
+    /** The number of changes on the trail. */
+    private int trailSize;
+
+    /** A new Domains for COMPLEXITY entities of each type, in which every
+     *  entity may be associated with every other entity. */
+    Domains(int complexity) {
+        this.complexity = complexity;
+        this.stride = Math.max(1, (complexity + WORD_SIZE - 1) / WORD_SIZE);
+        this.words = new long[KINDS * complexity * this.stride];
+        this.trailWords = new int[0];
+        this.trailValues = new long[0];
+        for (int set = 0; set < KINDS * complexity; set += 1) {
+            int start = set * this.stride;
+            for (int w = 0; w < this.stride; w += 1) {
+                int bits = Math.min(WORD_SIZE, complexity - w * WORD_SIZE);
+                this.words[start + w] =
+                        bits == WORD_SIZE ? -1L : (1L << bits) - 1;
+            }
+        }
+    }
+
+    /** A new Domains holding the same candidates as ORIGINAL. */
+    Domains(Domains original) {
+        this.complexity = original.complexity;
+        this.stride = original.stride;
+        this.words = Arrays.copyOf(original.words, original.words.length);
+        this.trailWords = new int[0];
+        this.trailValues = new long[0];
+    }
+
+    /** Start recording changes on the trail iff TRAILING. */
+    void setTrailing(boolean trailing) {
+        this.trailing = trailing;
+        if (!trailing) {
+            this.trailSize = 0;
+        }
+    }
+
+    /** Return a mark of the current end of the trail. */
+    int mark() {
+        return this.trailSize;
+    }
+
+    /** Undo every change recorded on the trail since MARK was made. */
+    void undo(int mark) {
+        while (this.trailSize > mark) {
+            this.trailSize -= 1;
+            this.words[this.trailWords[this.trailSize]] =
+                    this.trailValues[this.trailSize];
+        }
+    }
+
+    /** Record on the trail that word W of this.words is about to
+     *  change, if trailing. */
+    private void record(int w) {
+        if (!this.trailing) {
+            return;
+        }
+        if (this.trailSize == this.trailWords.length) {
+            int length = Math.max(16, 2 * this.trailSize);
+            this.trailWords = Arrays.copyOf(this.trailWords, length);
+            this.trailValues = Arrays.copyOf(this.trailValues, length);
+        }
+        this.trailWords[this.trailSize] = w;
+        this.trailValues[this.trailSize] = this.words[w];
+        this.trailSize += 1;
+    }
+
+    /** Return the index of the first word of the set of KIND for the
+     *  entity at index ENTITY. */
+    private int start(int kind, int entity) {
+        return (kind * this.complexity + entity) * this.stride;
+    }
+
+    /** Return true iff CANDIDATE is in the set of KIND for ENTITY. */
+    boolean contains(int kind, int entity, int candidate) {
+        long word = this.words[start(kind, entity) + candidate / WORD_SIZE];
+        return (word & (1L << candidate)) != 0;
+    }
+
+    /** Remove CANDIDATE from the set of KIND for ENTITY.  Return true iff
+     *  CANDIDATE was in the set. */
+    boolean remove(int kind, int entity, int candidate) {
+        int w = start(kind, entity) + candidate / WORD_SIZE;
+        long bit = 1L << candidate;
+        boolean present = (this.words[w] & bit) != 0;
+        if (present) {
+            record(w);
+            this.words[w] &= ~bit;
+        }
+        return present;
+    }
+
+    /** Make CANDIDATE the only member of the set of KIND for ENTITY. */
+    void pin(int kind, int entity, int candidate) {
+        int start = start(kind, entity);
+        for (int w = start; w < start + this.stride; w += 1) {
+            record(w);
+        }
+        Arrays.fill(this.words, start, start + this.stride, 0L);
+        this.words[start + candidate / WORD_SIZE] = 1L << candidate;
+    }
+
+    /** Return the number of candidates in the set of KIND for ENTITY. */
+    int size(int kind, int entity) {
+        int start = start(kind, entity);
+        int result = 0;
+        for (int w = start; w < start + this.stride; w += 1) {
+            result += Long.bitCount(this.words[w]);
+        }
+        return result;
+    }
+
+    /** Return true iff the set of KIND for ENTITY has no candidates. */
+    boolean isEmpty(int kind, int entity) {
+        int start = start(kind, entity);
+        for (int w = start; w < start + this.stride; w += 1) {
+            if (this.words[w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return true iff CANDIDATE is the only member of the set of KIND for
+     *  ENTITY. */
+    boolean pinned(int kind, int entity, int candidate) {
+        return contains(kind, entity, candidate) && size(kind, entity) == 1;
+    }
+
+    /** Return the smallest candidate in the set of KIND for ENTITY, or -1
+     *  if there is none. */
+    int first(int kind, int entity) {
+        return next(kind, entity, 0);
+    }
+
+    /** Return the smallest candidate no less than FROM in the set of KIND
+     *  for ENTITY, or -1 if there is none. */
+    int next(int kind, int entity, int from) {
+        if (from >= this.complexity) {
+            return -1;
+        }
+        int start = start(kind, entity);
+        int w = from / WORD_SIZE;
+        long word = this.words[start + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return w * WORD_SIZE + Long.numberOfTrailingZeros(word);
+            }
+            w += 1;
+            if (w == this.stride) {
+                return -1;
+            }
+            word = this.words[start + w];
+        }
+    }
+
+    /** Return true iff the sets of KIND for ENTITY1 and ENTITY2 hold the
+     *  same candidates. */
+    boolean sameCandidates(int kind, int entity1, int entity2) {
+        int start1 = start(kind, entity1);
+        int start2 = start(kind, entity2);
+        for (int w = 0; w < this.stride; w += 1) {
+            if (this.words[start1 + w] != this.words[start2 + w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package puzzle;
+
+import java.util.ArrayList;
+
+/** A puzzle posed as an exact cover problem.  Each person, job, and color
+ *  is a column, and each [person, job, color] triple that the candidates
+ *  of a puzzle still allow is a row covering three columns.  A solution
+ *  of the puzzle is a set of rows covering every column exactly once.
+ *  Solutions are counted by Knuth's Algorithm X over dancing links, which
+ *  are kept in parallel int arrays so that the search itself allocates
+ *  nothing.
+ *  @author Tanner Wauchope */
+class ExactCover {
+
+    /** The node at which the list of uncovered columns begins and ends. */
+    private static final int ROOT = 0;
+
+    /** The node to the left of each node. */
+    private final int[] left;
+
+    /** The node to the right of each node. */
+    private final int[] right;
+
+    /** The node above each node. */
+    private final int[] up;
+
+    /** The node below each node. */
+    private final int[] down;
+
+    /** The header of the column of each node.  Column headers are nodes
+     *  1 to 3 * complexity, in the order people, jobs, colors. */
+    private final int[] column;
+
+    /** The row of each node, or -1 for headers. */
+    private final int[] row;
+
+    /** The number of rows in each column, indexed by header. */
+    private final int[] size;
+
+    /** The [person, job, color] triple of each row. */
+    private final int[][] triples;
+
+    /** The rows chosen so far, one for each level of the search. */
+    private final int[] chosen;
+
+    /** The rows of the first solution found, or null. */
+    private int[][] solution;
+
+    /** The number of solutions found so far. */
+    private int found;
+
+    /** The number of solutions at which counting stops. */
+    private int cap;
+
+    /** The exact cover problem of the triples allowed by DOMAINS, among
+     *  COMPLEXITY entities of each type. */
+    ExactCover(Domains domains, int complexity) {
+        ArrayList<int[]> allowed = new ArrayList<int[]>();
+        for (int p = 0; p < complexity; p += 1) {
+            for (int j = domains.first(Domains.PERSON_JOBS, p); j != -1;
+                    j = domains.next(Domains.PERSON_JOBS, p, j + 1)) {
+                for (int c = domains.first(Domains.PERSON_COLORS, p);
+                        c != -1;
+                        c = domains.next(Domains.PERSON_COLORS, p, c + 1)) {
+                    if (domains.contains(Domains.JOB_COLORS, j, c)) {
+                        int[] triple = {p, j, c};
+                        allowed.add(triple);
+                    }
+                }
+            }
+        }
+        this.triples = allowed.toArray(new int[allowed.size()][]);
+        int headers = 3 * complexity + 1;
+        int nodes = headers + 3 * this.triples.length;
+        this.left = new int[nodes];
+        this.right = new int[nodes];
+        this.up = new int[nodes];
+        this.down = new int[nodes];
+        this.column = new int[nodes];
+        this.row = new int[nodes];
+        this.size = new int[headers];
+        this.chosen = new int[complexity];
+        for (int h = 0; h < headers; h += 1) {
+            this.left[h] = h == 0 ? headers - 1 : h - 1;
+            this.right[h] = h == headers - 1 ? ROOT : h + 1;
+            this.up[h] = h;
+            this.down[h] = h;
+            this.column[h] = h;
+            this.row[h] = -1;
+        }
+        int node = headers;
+        for (int r = 0; r < this.triples.length; r += 1) {
+            int[] triple = this.triples[r];
+            for (int type = 0; type < 3; type += 1) {
+                int h = 1 + type * complexity + triple[type];
+                this.column[node] = h;
+                this.row[node] = r;
+                this.up[node] = this.up[h];
+                this.down[node] = h;
+                this.down[this.up[h]] = node;
+                this.up[h] = node;
+                this.size[h] += 1;
+                this.left[node] = type == 0 ? node + 2 : node - 1;
+                this.right[node] = type == 2 ? node - 2 : node + 1;
+                node += 1;
+            }
+        }
+    }
+
+    /**
+     * @param cap  the number of solutions at which to stop counting
+     * @return  the number of solutions of this problem, or CAP if there
+     *          are at least that many
+     */
+    int count(int cap) {
+        this.cap = cap;
+        this.found = 0;
+        this.solution = null;
+        search(0);
+        return this.found;
+    }
+
+    /**
+     * @return  the [person, job, color] triples of the first solution
+     *          found by the last call to count, or null if none was found
+     */
+    int[][] solution() {
+        return this.solution;
+    }
+
+    /** Cover every column left uncovered once LEVEL rows have been
+     *  chosen, counting the ways of doing so until this.cap is reached. */
+    private void search(int level) {
+        if (this.right[ROOT] == ROOT) {
+            if (this.found == 0) {
+                this.solution = new int[level][];
+                for (int i = 0; i < level; i += 1) {
+                    this.solution[i] = this.triples[this.chosen[i]].clone();
+                }
+            }
+            this.found += 1;
+            return;
+        }
+        int best = this.right[ROOT];
+        for (int h = this.right[best]; h != ROOT; h = this.right[h]) {
+            if (this.size[h] < this.size[best]) {
+                best = h;
+            }
+        }
+        if (this.size[best] == 0) {
+            return;
+        }
+        cover(best);
+        for (int r = this.down[best]; r != best && this.found < this.cap;
+                r = this.down[r]) {
+            this.chosen[level] = this.row[r];
+            for (int n = this.right[r]; n != r; n = this.right[n]) {
+                cover(this.column[n]);
+            }
+            search(level + 1);
+            for (int n = this.left[r]; n != r; n = this.left[n]) {
+                uncover(this.column[n]);
+            }
+        }
+        uncover(best);
+    }
+
+    /** Remove the column headed by H, and every row that covers it, from
+     *  the columns that remain to be covered. */
+    private void cover(int h) {
+        this.right[this.left[h]] = this.right[h];
+        this.left[this.right[h]] = this.left[h];
+        for (int r = this.down[h]; r != h; r = this.down[r]) {
+            for (int n = this.right[r]; n != r; n = this.right[n]) {
+                this.down[this.up[n]] = this.down[n];
+                this.up[this.down[n]] = this.up[n];
+                this.size[this.column[n]] -= 1;
+            }
+        }
+    }
+
+    /** Undo cover(H). */
+    private void uncover(int h) {
+        for (int r = this.up[h]; r != h; r = this.up[r]) {
+            for (int n = this.left[r]; n != r; n = this.left[n]) {
+                this.size[this.column[n]] += 1;
+                this.down[this.up[n]] = n;
+                this.up[this.down[n]] = n;
+            }
+        }
+        this.right[this.left[h]] = h;
+        this.left[this.right[h]] = h;
+    }
+}
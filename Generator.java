@@ -0,0 +1,552 @@
+package puzzle;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** A source of random puzzles of a given size and hardness.  Each puzzle
+ *  hides a random solution, asserts every relation of most of its
+ *  triples of a person, job, and color, or enough of them for the rest to
+ *  follow, and leaves a few open triples to be told apart only by what
+ *  their entities are not, so that the hardness of the puzzle is the
+ *  hardness of telling them apart.  Clues about the open triples are
+ *  added until the solver finds the puzzle as hard as asked, and puzzles
+ *  that miss are made again.  Puzzle number K of a generator depends on
+ *  nothing but its seed, size, hardness, and density, and K, so any one
+ *  of them can be made again by itself, and any number of them can be
+ *  streamed one at a time.  Usage:
+ *
+ *      java puzzle.Generator [--seed=S] [--size=N] [--hardness=H]
+ *                            [--density=D] [--count=K] [--first=I]
+ *                            [--delimiter=TEXT]
+ *
+ *  prints puzzles I to I + K - 1, each followed by a line of TEXT, as
+ *  java puzzle.Solve - reads them.  H is one of propagation, one-guess,
+ *  deep-search, under-constrained, and impossible.
+ *  @author Tanner Wauchope */
+public class Generator {
+
+    /** How hard a puzzle is to solve. */
+    enum Hardness {
+        /** Solved by making inferences alone. */
+        PROPAGATION,
+        /** Solved by making inferences after each of the guesses about
+         *  some one person. */
+        ONE_GUESS,
+        /** Solved only by guessing on top of guesses. */
+        DEEP_SEARCH,
+        /** Solved more than one way. */
+        UNDER_CONSTRAINED,
+        /** Not solved any way. */
+        IMPOSSIBLE
+    }
+
+    /** The number of people, jobs, and colors in a puzzle, unless told
+     *  otherwise. */
+    private static final int DEFAULT_SIZE = 8;
+
+    /** The density of a puzzle, unless told otherwise. */
+    private static final double DEFAULT_DENSITY = 0.5;
+
+    /** The fewest open triples in a puzzle of each hardness. */
+    private static final int[] MIN_OPEN = {0, 4, 6, 2, 1};
+
+    /** The most open triples in a puzzle of each hardness. */
+    private static final int[] MAX_OPEN = {0, 8, 10, 4, 4};
+
+    /** The number of times a puzzle is made again, after missing its
+     *  hardness, before giving up. */
+    private static final int MAX_ATTEMPTS = 1000;
+
+    /** The consonants of the syllables of names. */
+    private static final String CONSONANTS = "bdfgklmnprstvz";
+
+    /** The vowels of the syllables of names. */
+    private static final String VOWELS = "aeiou";
+
+    /** A number prime to the number of syllables, by which the syllables
+     *  of names are scrambled, so that names differ from the start. */
+    private static final int SCRAMBLE = 23;
+
+    /** The numbers, in increasing order, whose syllables spell keywords,
+     *  which name nothing. */
+    private static final long[] KEYWORD_NUMBERS = keywordNumbers();
+
+    /** The seed of my puzzles. */
+    private final long seed;
+
+    /** The number of people, jobs, and colors in each of my puzzles. */
+    private final int size;
+
+    /** The hardness of my puzzles. */
+    private final Hardness hardness;
+
+    /** The fraction of the triples of my puzzles that are not open whose
+     *  every relation is asserted, rather than two of them.  As many
+     *  false relations of those triples are denied. */
+    private final double density;
+
+    /** A generator of puzzles of SIZE people, jobs, and colors, of
+     *  HARDNESS, and of DENSITY, made from SEED. */
+    Generator(long seed, int size, Hardness hardness, double density) {
+        if (!fits(size, hardness)) {
+            throw new IllegalArgumentException("puzzles of " + size
+                    + " people are too small to be " + name(hardness));
+        }
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("a density must be between "
+                    + "0 and 1");
+        }
+        this.seed = seed;
+        this.size = size;
+        this.hardness = hardness;
+        this.density = density;
+    }
+
+    /** Return the text of my puzzle number K. */
+    String puzzle(long k) {
+        Random random = new Random(mix(this.seed * 31 + mix(k)));
+        int kind = this.hardness.ordinal();
+        for (int i = 0; i < MAX_ATTEMPTS; i += 1) {
+            int open = MIN_OPEN[kind] + random.nextInt(
+                    Math.min(MAX_OPEN[kind], this.size) - MIN_OPEN[kind] + 1);
+            ArrayList<int[]> clues = openClues(open, random);
+            if (clues != null) {
+                return text(open, clues, random);
+            }
+        }
+        throw new IllegalStateException("could not make a puzzle that is "
+                + name(this.hardness));
+    }
+
+    /** Return the clues about OPEN open triples, made with RANDOM, that
+     *  make a puzzle of my hardness, or null if those made miss it.  The
+     *  open triples are numbered from 0, and triple T is person T, job T,
+     *  and color T.  Each clue is a [relation, a, b, holds] array, where
+     *  RELATION is one of Solver.PERSON_JOB, PERSON_COLOR, and JOB_COLOR,
+     *  A and B are the triples of the entities it relates, and HOLDS is 1
+     *  if it asserts them related and 0 if it denies it. */
+    private ArrayList<int[]> openClues(int open, Random random) {
+        ArrayList<int[]> pool = new ArrayList<int[]>();
+        for (int relation = 0; relation < Sentence.KINDS; relation += 1) {
+            for (int a = 0; a < open; a += 1) {
+                for (int b = 0; b < open; b += 1) {
+                    if (a != b) {
+                        pool.add(new int[] {relation, a, b, 0});
+                    }
+                }
+            }
+        }
+        Collections.shuffle(pool, random);
+        ArrayList<int[]> result = new ArrayList<int[]>();
+        if (this.hardness == Hardness.UNDER_CONSTRAINED) {
+            int denials = random.nextInt(pool.size() / 2 + 1);
+            result.addAll(pool.subList(0, denials));
+            return solver(open, result).countSolutions(2) > 1 ? result
+                    : null;
+        }
+        if (open == 0) {
+            return result;
+        }
+        Solver solver = solver(open, result);
+        for (int[] clue : pool) {
+            if (solver.countSolutions(2) == 1) {
+                break;
+            }
+            result.add(clue);
+            tell(solver, clue);
+            solver.makeInferences();
+        }
+        if (this.hardness == Hardness.ONE_GUESS
+                || this.hardness == Hardness.DEEP_SEARCH) {
+            Collections.shuffle(result, random);
+            for (int i = result.size() - 1; i >= 0
+                    && (this.hardness == Hardness.DEEP_SEARCH
+                        || classify(solver(open, result))
+                            == Hardness.PROPAGATION); i -= 1) {
+                int[] clue = result.remove(i);
+                if (solver(open, result).countSolutions(2) != 1) {
+                    result.add(i, clue);
+                }
+            }
+        }
+        if (this.hardness == Hardness.IMPOSSIBLE) {
+            int triple = random.nextInt(open);
+            result.add(new int[] {random.nextInt(Sentence.KINDS), triple,
+                triple, 0});
+            return result;
+        }
+        return classify(solver(open, result)) == this.hardness ? result
+                : null;
+    }
+
+    /** Return a solver that knows CLUES about OPEN open triples, and has
+     *  made the inferences that follow. */
+    private static Solver solver(int open, ArrayList<int[]> clues) {
+        LinkedHashSet<String> people = new LinkedHashSet<String>();
+        LinkedHashSet<String> jobs = new LinkedHashSet<String>();
+        LinkedHashSet<String> colors = new LinkedHashSet<String>();
+        for (int i = 0; i < open; i += 1) {
+            people.add(person(i));
+            jobs.add(job(i));
+            colors.add(color(i));
+        }
+        Solver result = new Solver();
+        result.setParameters(people, jobs, colors);
+        for (int[] clue : clues) {
+            tell(result, clue);
+        }
+        result.makeInferences();
+        return result;
+    }
+
+    /** Tell SOLVER CLUE, a clue as openClues makes it. */
+    private static void tell(Solver solver, int[] clue) {
+        boolean holds = clue[3] == 1;
+        switch (clue[0]) {
+        case Solver.PERSON_JOB:
+            if (holds) {
+                solver.personJobAssociate(clue[1], clue[2]);
+            } else {
+                solver.personJobDisassociate(clue[1], clue[2]);
+            }
+            break;
+        case Solver.PERSON_COLOR:
+            if (holds) {
+                solver.personColorAssociate(clue[1], clue[2]);
+            } else {
+                solver.personColorDisassociate(clue[1], clue[2]);
+            }
+            break;
+        default:
+            if (holds) {
+                solver.jobColorAssociate(clue[1], clue[2]);
+            } else {
+                solver.jobColorDisassociate(clue[1], clue[2]);
+            }
+            break;
+        }
+    }
+
+    /** Return the hardness of the puzzle that SOLVER knows, once it has
+     *  made the inferences that follow from it.  A puzzle that has one
+     *  solution needs only one guess if there is some person each of
+     *  whose possible jobs and colors either solves the puzzle or is
+     *  found impossible by making inferences. */
+    static Hardness classify(Solver solver) {
+        if (solver.impossible()) {
+            return Hardness.IMPOSSIBLE;
+        } else if (solver.solved()) {
+            return Hardness.PROPAGATION;
+        }
+        int count = solver.countSolutions(2);
+        if (count == 0) {
+            return Hardness.IMPOSSIBLE;
+        } else if (count > 1) {
+            return Hardness.UNDER_CONSTRAINED;
+        }
+        for (int person = 0; person < solver.getComplexity(); person += 1) {
+            boolean settled = true;
+            ArrayList<int[]> guesses = solver.findGuesses(person);
+            if (guesses.size() < 2) {
+                continue;
+            }
+            for (int[] guess : guesses) {
+                solver.checkpoint();
+                solver.assume(guess);
+                settled &= solver.solved() || solver.impossible();
+                solver.rollback();
+                if (!settled) {
+                    break;
+                }
+            }
+            if (settled) {
+                return Hardness.ONE_GUESS;
+            }
+        }
+        return Hardness.DEEP_SEARCH;
+    }
+
+    /** Return the text of a puzzle with OPEN open triples, of which
+     *  CLUES, made by openClues, are asserted, made with RANDOM.  Its
+     *  assertions come in a random order, followed by a question about
+     *  every person. */
+    private String text(int open, ArrayList<int[]> clues, Random random) {
+        int[] people = permutation(this.size, random);
+        int[] jobs = permutation(this.size, random);
+        int[] colors = permutation(this.size, random);
+        boolean[][] mentioned = new boolean[Sentence.KINDS][this.size];
+        ArrayList<String> sentences = new ArrayList<String>();
+        for (int[] clue : clues) {
+            int[] entities = {people[clue[1]], jobs[clue[1]], colors[clue[1]]};
+            int[] others = {people[clue[2]], jobs[clue[2]], colors[clue[2]]};
+            sentences.add(sentence(clue[0], entities, others, clue[3] == 1,
+                    mentioned));
+        }
+        int closed = this.size - open;
+        for (int i = open; i < this.size; i += 1) {
+            int[] entities = {people[i], jobs[i], colors[i]};
+            int unstated = random.nextDouble() < this.density ? -1
+                    : random.nextInt(Sentence.KINDS);
+            for (int relation = 0; relation < Sentence.KINDS;
+                    relation += 1) {
+                if (relation != unstated) {
+                    sentences.add(sentence(relation, entities, entities,
+                            true, mentioned));
+                }
+            }
+        }
+        long denials = this.size > 1 ? Math.round(closed * this.density) : 0;
+        for (long i = denials; i > 0; i -= 1) {
+            int a = open + random.nextInt(closed);
+            int b = (a + 1 + random.nextInt(this.size - 1)) % this.size;
+            int[] entities = {people[a], jobs[a], colors[a]};
+            int[] others = {people[b], jobs[b], colors[b]};
+            sentences.add(sentence(random.nextInt(Sentence.KINDS), entities,
+                    others, false, mentioned));
+        }
+        for (int i = 0; i < this.size; i += 1) {
+            if (!mentioned[Sentence.PERSON][i]) {
+                sentences.add(capitalized(person(i)) + " lives around here.");
+            }
+            if (!mentioned[Sentence.JOB][i]) {
+                sentences.add("The " + job(i) + " lives around here.");
+            }
+            if (!mentioned[Sentence.COLOR][i]) {
+                sentences.add("There is a " + color(i) + " house.");
+            }
+        }
+        Collections.shuffle(sentences, random);
+        StringBuilder result = new StringBuilder();
+        for (String sentence : sentences) {
+            result.append(sentence).append('\n');
+        }
+        for (int i = 0; i < this.size; i += 1) {
+            result.append("What do you know about ")
+                    .append(capitalized(person(i))).append("?\n");
+        }
+        return result.toString();
+    }
+
+    /** Return the sentence that asserts, if HOLDS, or else denies, that
+     *  the entity among ENTITIES and the entity among OTHERS, each a
+     *  [person, job, color] array of ids, go together by RELATION.
+     *  Note them in MENTIONED, indexed by kind and id. */
+    private static String sentence(int relation, int[] entities,
+            int[] others, boolean holds, boolean[][] mentioned) {
+        int first = relation == Solver.JOB_COLOR ? Sentence.JOB
+                : Sentence.PERSON;
+        int second = relation == Solver.PERSON_JOB ? Sentence.JOB
+                : Sentence.COLOR;
+        mentioned[first][entities[first]] = true;
+        mentioned[second][others[second]] = true;
+        String subject = first == Sentence.PERSON
+                ? capitalized(person(entities[first]))
+                : "The " + job(entities[first]);
+        if (second == Sentence.JOB) {
+            return subject + (holds ? " is the " : " is not the ")
+                    + job(others[second]) + ".";
+        }
+        return subject + (holds ? " lives in the " : " does not live in the ")
+                + color(others[second]) + " house.";
+    }
+
+    /** Return a random permutation of the numbers below SIZE, made with
+     *  RANDOM. */
+    private static int[] permutation(int size, Random random) {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i += 1) {
+            int j = random.nextInt(i + 1);
+            result[i] = result[j];
+            result[j] = i;
+        }
+        return result;
+    }
+
+    /** Return the name of person number K, uncapitalized. */
+    private static String person(int k) {
+        return syllables(stem(k));
+    }
+
+    /** Return the name of job number K. */
+    private static String job(int k) {
+        return syllables(stem(k)) + "er";
+    }
+
+    /** Return the name of color number K. */
+    private static String color(int k) {
+        return syllables(stem(k)) + "ine";
+    }
+
+    /** Return the number whose syllables begin the names of entities
+     *  number K, which is the Kth number, from 0, that spells no
+     *  keyword. */
+    private static long stem(int k) {
+        long result = k;
+        for (long number : KEYWORD_NUMBERS) {
+            if (number <= result) {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+    /** Return NAME with its first letter capitalized. */
+    private static String capitalized(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /** Return a word of two or more syllables that names the number K. */
+    private static String syllables(long k) {
+        int syllables = CONSONANTS.length() * VOWELS.length();
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < 2 || k > 0; i += 1) {
+            int syllable = (int) ((k % syllables * SCRAMBLE + i) % syllables);
+            result.append(CONSONANTS.charAt(syllable / VOWELS.length()))
+                    .append(VOWELS.charAt(syllable % VOWELS.length()));
+            k /= syllables;
+        }
+        return result.toString();
+    }
+
+    /** Return the number that WORD names, as syllables names it, or -1
+     *  if it names none. */
+    private static long number(String word) {
+        int syllables = CONSONANTS.length() * VOWELS.length();
+        int length = word.length() / 2;
+        if (word.length() % 2 != 0 || length < 2) {
+            return -1;
+        }
+        long result = 0;
+        long place = 1;
+        for (int i = 0; i < length; i += 1) {
+            int consonant = CONSONANTS.indexOf(word.charAt(2 * i));
+            int vowel = VOWELS.indexOf(word.charAt(2 * i + 1));
+            if (consonant < 0 || vowel < 0) {
+                return -1;
+            }
+            int syllable = consonant * VOWELS.length() + vowel;
+            int digit = 0;
+            while ((digit * SCRAMBLE + i) % syllables != syllable) {
+                digit += 1;
+            }
+            if (digit == 0 && i == length - 1 && i >= 2) {
+                return -1;
+            }
+            result += digit * place;
+            place *= syllables;
+        }
+        return result;
+    }
+
+    /** Return the numbers, in increasing order, whose syllables spell
+     *  keywords. */
+    private static long[] keywordNumbers() {
+        ArrayList<Long> numbers = new ArrayList<Long>();
+        for (String keyword : Parser.keywords()) {
+            long number = number(keyword);
+            if (number >= 0) {
+                numbers.add(number);
+            }
+        }
+        Collections.sort(numbers);
+        long[] result = new long[numbers.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = numbers.get(i);
+        }
+        return result;
+    }
+
+    /** Return the name of HARDNESS, as the option --hardness takes it. */
+    private static String name(Hardness hardness) {
+        return hardness.name().toLowerCase().replace('_', '-');
+    }
+
+    /** Return true iff a puzzle of SIZE people, jobs, and colors can be
+     *  of HARDNESS. */
+    static boolean fits(int size, Hardness hardness) {
+        return size >= Math.max(1, MIN_OPEN[hardness.ordinal()]);
+    }
+
+    /** Return the hardness whose name is NAME. */
+    static Hardness hardness(String name) {
+        for (Hardness hardness : Hardness.values()) {
+            if (name(hardness).equals(name)) {
+                return hardness;
+            }
+        }
+        throw new IllegalArgumentException("no hardness " + name);
+    }
+
+    /** Return X with its bits mixed, so that numbers that differ little
+     *  give seeds that differ much. */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Print the puzzles described by ARGS, as described above. */
+    public static void main(String[] args) {
+        long seed = 0;
+        int size = DEFAULT_SIZE;
+        Hardness hardness = Hardness.PROPAGATION;
+        double density = DEFAULT_DENSITY;
+        long count = 1;
+        long first = 0;
+        String delimiter = PuzzleStream.DEFAULT_DELIMITER;
+        Generator generator = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(arg.substring("--seed=".length()));
+                } else if (arg.startsWith("--size=")) {
+                    size = Integer.parseInt(
+                            arg.substring("--size=".length()));
+                } else if (arg.startsWith("--hardness=")) {
+                    hardness = hardness(arg.substring(
+                            "--hardness=".length()));
+                } else if (arg.startsWith("--density=")) {
+                    density = Double.parseDouble(
+                            arg.substring("--density=".length()));
+                } else if (arg.startsWith("--count=")) {
+                    count = Long.parseLong(arg.substring("--count=".length()));
+                } else if (arg.startsWith("--first=")) {
+                    first = Long.parseLong(arg.substring("--first=".length()));
+                } else if (arg.startsWith("--delimiter=")) {
+                    delimiter = arg.substring("--delimiter=".length());
+                } else {
+                    throw new IllegalArgumentException("unknown option "
+                            + arg);
+                }
+            }
+            generator = new Generator(seed, size, hardness, density);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+        Writer output = new BufferedWriter(
+                new OutputStreamWriter(System.out, UTF_8));
+        try {
+            for (long k = first; k < first + count; k += 1) {
+                output.write(generator.puzzle(k));
+                output.write(delimiter);
+                output.write('\n');
+            }
+            output.flush();
+        } catch (IOException e) {
+            System.err.println("Error: could not write the puzzles");
+            System.exit(1);
+        } catch (IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/** A set of facts, each of which relates two entities by one of the
+ *  solver's relations.  Facts are kept in the order in which they were
+ *  added, and membership is answered from a bit matrix per relation, so
+ *  neither adding nor looking up a fact allocates.
+ *  @author Tanner Wauchope */
+class Ledger {
+
+    /** The number of relations a fact may have. */
+    private static final int RELATIONS = 3;
+
+    /** The number of bits in a word of this.members. */
+    private static final int WORD_SIZE = 64;
+
+    /** The number of entities of each type. */
+    private final int complexity;
+
+    /**
+     *  One bit for every possible fact.  The fact relating A to B by
+     *  RELATION is bit (RELATION * complexity + A) * complexity + B.
+     */
+    private final long[] members;
+
+    /** The bit of every fact, in the order the facts were added. */
+    private int[] order;
+
+    /** The number of facts in this ledger. */
+    private int size;
+
+    /** A new, empty Ledger for COMPLEXITY entities of each type. */
+    Ledger(int complexity) {
+        this.complexity = complexity;
+        int bits = RELATIONS * complexity * complexity;
+        this.members = new long[(bits + WORD_SIZE - 1) / WORD_SIZE];
+        this.order = new int[Math.max(1, RELATIONS * complexity)];
+        this.size = 0;
+    }
+
+    /** A new Ledger holding the same facts as ORIGINAL. */
+    Ledger(Ledger original) {
+        this.complexity = original.complexity;
+        this.members = Arrays.copyOf(original.members,
+                original.members.length);
+        this.order = Arrays.copyOf(original.order, original.order.length);
+        this.size = original.size;
+    }
+
+    /** Return the bit of the fact relating A to B by RELATION. */
+    private int bit(int relation, int a, int b) {
+        return (relation * this.complexity + a) * this.complexity + b;
+    }
+
+    /** Return true iff this ledger holds the fact relating A to B by
+     *  RELATION. */
+    boolean contains(int relation, int a, int b) {
+        int bit = bit(relation, a, b);
+        return (this.members[bit / WORD_SIZE] & (1L << bit)) != 0;
+    }
+
+    /** Add the fact relating A to B by RELATION.  Return false iff the
+     *  fact was already here. */
+    boolean add(int relation, int a, int b) {
+        int bit = bit(relation, a, b);
+        if ((this.members[bit / WORD_SIZE] & (1L << bit)) != 0) {
+            return false;
+        }
+        this.members[bit / WORD_SIZE] |= 1L << bit;
+        if (this.size == this.order.length) {
+            this.order = Arrays.copyOf(this.order, 2 * this.size);
+        }
+        this.order[this.size] = bit;
+        this.size += 1;
+        return true;
+    }
+
+    /** Remove every fact but the first SIZE. */
+    void truncate(int size) {
+        while (this.size > size) {
+            this.size -= 1;
+            int bit = this.order[this.size];
+            this.members[bit / WORD_SIZE] &= ~(1L << bit);
+        }
+    }
+
+    /** Return the number of facts in this ledger. */
+    int size() {
+        return this.size;
+    }
+
+    /** Return the relation of fact K, numbering from 0 in the order the
+     *  facts were added. */
+    int relation(int k) {
+        return this.order[k] / (this.complexity * this.complexity);
+    }
+
+    /** Return the first entity of fact K. */
+    int first(int k) {
+        return this.order[k] / this.complexity % this.complexity;
+    }
+
+    /** Return the second entity of fact K. */
+    int second(int k) {
+        return this.order[k] % this.complexity;
+    }
+}
@@ -0,0 +1,306 @@
+package puzzle;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** Splits the text of a puzzle into sentences and words in a single pass
+ *  over its characters, handing each sentence to a Parser as soon as it
+ *  ends.  Words are separated by spaces and control characters, and a
+ *  sentence ends with a word whose last character is a period or question
+ *  mark.  A period or question mark standing alone ends the sentence before
+ *  it.  Every line must end at the end of a sentence.  While reading each
+ *  word, I note whether it is capitalized or lowercase, so that the
+ *  Parser's grammar need not look at its letters again.
+ *  @author Tanner Wauchope */
+class Lexer {
+
+    /** The shape of a word that is neither capitalized nor lowercase. */
+    static final int OTHER = 0;
+
+    /** The shape of a capital letter followed by lowercase letters. */
+    static final int CAPITALIZED = 1;
+
+    /** The shape of a word of lowercase letters. */
+    static final int LOWERCASE = 2;
+
+    /** The shape of a word of which nothing has been read. */
+    private static final int BLANK = 3;
+
+    /** The shape of a word of which only a capital letter has been read. */
+    private static final int INITIAL = 4;
+
+    /** The number of characters read from a Reader, or bytes from a
+     *  ByteBuffer, at a time. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The character read in place of a byte outside of ASCII, which can
+     *  be part of no name or keyword. */
+    private static final char NOT_ASCII = '\uFFFD';
+
+    /** The bytes of NEL, U+0085, in UTF-8. */
+    private static final int NEL_BYTES = 0xC285;
+
+    /** The bytes of LINE SEPARATOR, U+2028, in UTF-8. */
+    private static final int LINE_SEPARATOR_BYTES = 0xE280A8;
+
+    /** The bytes of PARAGRAPH SEPARATOR, U+2029, in UTF-8. */
+    private static final int PARAGRAPH_SEPARATOR_BYTES = 0xE280A9;
+
+    /** The parser that receives my sentences. */
+    private final Parser parser;
+
+    /** The text of the sentence being read, with one space between
+     *  words, in its first this.length characters. */
+    private char[] text;
+
+    /** The number of characters in the text of the sentence. */
+    private int length;
+
+    /** The offset in this.text at which each word of the sentence
+     *  starts. */
+    private int[] starts;
+
+    /** The offset in this.text at which each word of the sentence ends,
+     *  not counting the period or question mark that ends the last. */
+    private int[] ends;
+
+    /** The shape of each word of the sentence. */
+    private int[] shapes;
+
+    /** The number of words of the sentence that have ended. */
+    private int words;
+
+    /** The offset in this.text at which the current word starts, or -1
+     *  between words. */
+    private int start;
+
+    /** The shape of the current word. */
+    private int shape;
+
+    /** The shape of the current word without its last character. */
+    private int previousShape;
+
+    /** The last bytes read from a ByteBuffer, the latest in the low byte,
+     *  if they begin a line separator in UTF-8, or else 0. */
+    private int separator;
+
+    /** A Lexer that hands its sentences to PARSER. */
+    Lexer(Parser parser) {
+        this.parser = parser;
+        this.text = new char[256];
+        this.starts = new int[16];
+        this.ends = new int[16];
+        this.shapes = new int[16];
+        this.start = -1;
+    }
+
+    /** Read all of INPUT and close it. */
+    void read(Reader input) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            for (int n = input.read(buffer); n != -1; n = input.read(buffer)) {
+                for (int i = 0; i < n; i += 1) {
+                    accept(buffer[i]);
+                }
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /** Read the bytes remaining in INPUT as ASCII characters, copying
+     *  them out a buffer at a time rather than decoding them.  The line
+     *  separators NEL, U+2028, and U+2029 in UTF-8 end lines, as they do
+     *  when read from a Reader, even when split between INPUT and the
+     *  next ByteBuffer read, and every other byte outside of ASCII is
+     *  read as NOT_ASCII. */
+    void read(ByteBuffer input) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (input.hasRemaining()) {
+            int n = Math.min(buffer.length, input.remaining());
+            input.get(buffer, 0, n);
+            for (int i = 0; i < n; i += 1) {
+                byte b = buffer[i];
+                if (b >= 0 && this.separator == 0) {
+                    accept((char) b);
+                } else {
+                    acceptByte(b & 0xFF);
+                }
+            }
+        }
+    }
+
+    /** Read the byte B, which is outside of ASCII or follows the start of
+     *  a line separator in UTF-8. */
+    private void acceptByte(int b) {
+        int bytes = this.separator << 8 | b;
+        if (bytes == NEL_BYTES) {
+            this.separator = 0;
+            accept('\u0085');
+        } else if (bytes == LINE_SEPARATOR_BYTES) {
+            this.separator = 0;
+            accept('\u2028');
+        } else if (bytes == PARAGRAPH_SEPARATOR_BYTES) {
+            this.separator = 0;
+            accept('\u2029');
+        } else if (bytes == NEL_BYTES >> 8
+                || bytes == LINE_SEPARATOR_BYTES >> 16
+                || bytes == LINE_SEPARATOR_BYTES >> 8) {
+            this.separator = bytes;
+        } else {
+            flushSeparator();
+            if (b == NEL_BYTES >> 8 || b == LINE_SEPARATOR_BYTES >> 16) {
+                this.separator = b;
+            } else {
+                accept(b < 0x80 ? (char) b : NOT_ASCII);
+            }
+        }
+    }
+
+    /** Read the bytes that began a line separator, but did not finish one,
+     *  as NOT_ASCII. */
+    private void flushSeparator() {
+        for (int bytes = this.separator; bytes != 0; bytes >>>= 8) {
+            accept(NOT_ASCII);
+        }
+        this.separator = 0;
+    }
+
+    /** Read the character C. */
+    private void accept(char c) {
+        if (c > ' ' && !isLineBreak(c)) {
+            if (this.start == -1) {
+                if (this.length > 0) {
+                    append(' ');
+                }
+                this.start = this.length;
+                this.shape = BLANK;
+            }
+            append(c);
+            this.previousShape = this.shape;
+            this.shape = advance(this.shape, c);
+        } else {
+            endWord();
+            if (this.length > 0 && isLineBreak(c)) {
+                throw new PuzzleException(
+                        "a line contained an incomplete sentence");
+            }
+        }
+    }
+
+    /** Return true iff C ends a line. */
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r'
+                || c >= '\u0085'
+                && (c == '\u0085' || c == '\u2028' || c == '\u2029');
+    }
+
+    /** Add C to the text of the sentence. */
+    private void append(char c) {
+        if (this.length == this.text.length) {
+            this.text = Arrays.copyOf(this.text, 2 * this.length);
+        }
+        this.text[this.length] = c;
+        this.length += 1;
+    }
+
+    /** Finish reading the text, which ends a line. */
+    void end() {
+        flushSeparator();
+        accept('\n');
+    }
+
+    /** Return the shape of a word of shape SHAPE followed by C. */
+    private static int advance(int shape, char c) {
+        boolean lower = c >= 'a' && c <= 'z';
+        if (shape == BLANK) {
+            return lower ? LOWERCASE : c >= 'A' && c <= 'Z' ? INITIAL : OTHER;
+        } else if (shape == INITIAL) {
+            return lower ? CAPITALIZED : OTHER;
+        } else if (shape == CAPITALIZED || shape == LOWERCASE) {
+            return lower ? shape : OTHER;
+        }
+        return OTHER;
+    }
+
+    /** End the current word, if any, and the sentence, if the word ends
+     *  it. */
+    private void endWord() {
+        if (this.start == -1) {
+            return;
+        }
+        char last = this.text[this.length - 1];
+        if (last != '.' && last != '?') {
+            addWord(this.length, this.shape);
+        } else {
+            if (this.length - this.start > 1) {
+                addWord(this.length - 1, this.previousShape);
+            } else if (this.start > 0) {
+                this.text[this.start - 1] = last;
+                this.length -= 1;
+            }
+            this.parser.recognize(this);
+            this.length = 0;
+            this.words = 0;
+        }
+        this.start = -1;
+    }
+
+    /** Add the current word, ending at END with shape SHAPE, to the
+     *  sentence. */
+    private void addWord(int end, int shape) {
+        if (this.words == this.starts.length) {
+            int capacity = 2 * this.words;
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.shapes = Arrays.copyOf(this.shapes, capacity);
+        }
+        this.starts[this.words] = this.start;
+        this.ends[this.words] = end;
+        this.shapes[this.words] = shape;
+        this.words += 1;
+    }
+
+    /** Append the text of the sentence just read to RESULT. */
+    void appendTo(StringBuilder result) {
+        result.append(this.text, 0, this.length);
+    }
+
+    /** Return the period or question mark that ends the sentence just
+     *  read. */
+    char mark() {
+        return this.text[this.length - 1];
+    }
+
+    /** Return the number of words in the sentence just read. */
+    int words() {
+        return this.words;
+    }
+
+    /** Return the shape of word K of the sentence just read. */
+    int shape(int k) {
+        return this.shapes[k];
+    }
+
+    /** Return word K of the sentence just read. */
+    String word(int k) {
+        return new String(this.text, this.starts[k],
+                this.ends[k] - this.starts[k]);
+    }
+
+    /** Return true iff word K of the sentence just read is WORD. */
+    boolean matches(int k, String word) {
+        int start = this.starts[k];
+        if (this.ends[k] - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i += 1) {
+            if (this.text[start + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,9 +2,14 @@ package puzzle;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.LinkedHashSet;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /** Tests of Parser class.
  *  @author Tanner Wauchope */
 public class ParseTest {
@@ -55,4 +60,136 @@ public class ParseTest {
         testColors.add("yellow");
         assertEquals("bad colors set", testColors, p.getColors());
     }
+
+    /** Puzzles in a stream are parsed one at a time, each stopping at
+     *  its delimiter, even when a puzzle before them has an error. */
+    @Test
+    public void streamParsing() throws IOException {
+        setUp("Joe is the plumber.", "Who is the plumber?", "---",
+              "Tom is", "Tom is the cook.", "---",
+              "", "Amy lives in the red house.", "Where does Amy live?");
+        PuzzleStream puzzles = new PuzzleStream(reader, "---");
+
+        Parser p = Parser.parse(puzzles.next());
+        assertEquals("first puzzle", "Joe is the plumber.",
+                     p.getAssertion(0));
+        assertEquals("first puzzle questions", 1, p.numQuestions());
+        try {
+            Parser.parse(puzzles.next());
+            fail("second puzzle should not parse");
+        } catch (PuzzleException e) {
+            assertEquals("a line contained an incomplete sentence",
+                         e.getMessage());
+        }
+        p = Parser.parse(puzzles.next());
+        assertEquals("third puzzle", "Amy lives in the red house.",
+                     p.getAssertion(0));
+        assertEquals("third puzzle assertions", 1, p.numAssertions());
+        assertNull("no fourth puzzle", puzzles.next());
+    }
+
+    /** Return the message of the error in the puzzle made of LINES. */
+    private static String problem(String... lines) {
+        setUp(lines);
+        try {
+            Parser.parse(reader);
+        } catch (PuzzleException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /** Each sentence is classified as it is read, and the most important
+     *  of its problems is reported once the puzzle has been read. */
+    @Test
+    public void grammarParsing() {
+        setUp("Joe is  the plumber .", "There is a red house.",
+              "What do you know about Joe ?");
+        Parser p = Parser.parse(reader);
+        assertEquals("Fact #0", "Joe is the plumber.", p.getAssertion(0));
+        assertEquals("Fact #1", "There is a red house.", p.getAssertion(1));
+        assertEquals("Q #0", "What do you know about Joe?", p.getQuestion(0));
+
+        assertEquals("assertions must precede questions",
+                     problem("Who is the cook?", "Joe is a cook.",
+                             "Joe is the cook."));
+        assertEquals("an assertion is unformatted",
+                     problem("Joe is a cook.", "Who is the Cook?"));
+        assertEquals("a question is unformatted",
+                     problem("Joe is the cook.", "Who is the Cook?",
+                             "Who is the chef?"));
+        assertEquals("you asked about something random",
+                     problem("Joe is the cook.", "Who is the chef?"));
+        assertEquals("keywords, people, occupations, and colors must have "
+                     + "unique spellings",
+                     problem("Joe is the house."));
+        assertEquals("a line contained an incomplete sentence",
+                     problem("Joe is a cook.", "Who is", "the cook?"));
+        assertNull("no problem", problem("Joe is the cook."));
+    }
+
+    /** A file is parsed from its bytes, and a name with a letter outside
+     *  of ASCII is unformatted. */
+    @Test
+    public void fileParsing() throws IOException {
+        Path file = Files.createTempFile("puzzle", ".txt");
+        try {
+            Files.write(file, ("Joe  is the plumber.\r\n\r\n"
+                    + "Who is the plumber ?\r\n").getBytes(UTF_8));
+            Parser p = Parser.parse(file);
+            assertEquals("Fact #0", "Joe is the plumber.", p.getAssertion(0));
+            assertEquals("Q #0", "Who is the plumber?", p.getQuestion(0));
+            assertEquals("bad jobs set", "[plumber]", p.getJobs().toString());
+
+            Files.write(file, "Jos\u00e9 is the plumber.\n".getBytes(UTF_8));
+            try {
+                Parser.parse(file);
+                fail("a name outside of ASCII should not parse");
+            } catch (PuzzleException e) {
+                assertEquals("an assertion is unformatted", e.getMessage());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** A file parsed from its bytes ends lines wherever the same text read
+     *  as characters does. */
+    @Test
+    public void fileLineSeparators() throws IOException {
+        Path file = Files.createTempFile("puzzle", ".txt");
+        try {
+            for (String separator : new String[] {"\u0085", "\u2028",
+                                                  "\u2029"}) {
+                String text = "Joe is the plumber." + separator
+                        + "Who is the plumber?" + separator;
+                Files.write(file, text.getBytes(UTF_8));
+                Parser fromFile = Parser.parse(file);
+                Parser fromReader = Parser.parse(new StringReader(text));
+                assertEquals("Fact #0", fromReader.getAssertion(0),
+                             fromFile.getAssertion(0));
+                assertEquals("Q #0", fromReader.getQuestion(0),
+                             fromFile.getQuestion(0));
+
+                Files.write(file, ("Joe is" + separator + "the plumber.")
+                            .getBytes(UTF_8));
+                try {
+                    Parser.parse(file);
+                    fail("a sentence split between lines should not parse");
+                } catch (PuzzleException e) {
+                    assertEquals("a line contained an incomplete sentence",
+                                 e.getMessage());
+                }
+            }
+            Files.write(file, "Jo\u2027e is the plumber.\n".getBytes(UTF_8));
+            try {
+                Parser.parse(file);
+                fail("a name outside of ASCII should not parse");
+            } catch (PuzzleException e) {
+                assertEquals("an assertion is unformatted", e.getMessage());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
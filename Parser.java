@@ -1,391 +1,427 @@
 package puzzle;
 
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.Scanner;
+import java.util.Set;
 
 /** A sequence of Assertions and Questions parsed from a given file.
  *  @author Tanner Wauchope */
 class Parser {
 
-    /**  A set of the people that were named in the assertions. */
-    private LinkedHashSet<String> people;
+    /** The names of the people, jobs, and colors named in my assertions,
+     *  indexed by kind of entity.  The id of an entity is the position of
+     *  its name, in the order the assertions first name them. */
+    private final ArrayList<ArrayList<String>> names;
 
-    /** A set of the jobs that were named in the assertions. */
-    private LinkedHashSet<String> jobs;
+    /** The id of each name in NAMES, indexed by kind of entity. */
+    private final ArrayList<HashMap<String, Integer>> ids;
 
-    /** A set of the colors that were named in the assertions. */
-    private LinkedHashSet<String> colors;
+    /** My assertions, in order. */
+    private final ArrayList<Sentence> assertions;
 
-    /**
-     *  Each sublist of QUESTIONS holds useful info about a single question.
-     *  The first item of a sublist is the verbatim text of a question.
-     *  The second item of a sublist is the question type.
-     *  The third item of a sublist is the first entity named by the question.
-     *  The fourth item in a sublist, if it exists, is the second entity
-     *  named by a question.
-     */
-    private ArrayList<ArrayList<String>> questions;
+    /** My questions, in order. */
+    private final ArrayList<Sentence> questions;
 
-    /**
-     *  Each sublist of ASSERTIONS holds useful info about a single assertion.
-     *  The first item of a sublist is the verbatim text of an assertion.
-     *  The second item of a sublist is the assertion type.
-     *  The third item of a sublist is the first entity named by the assertion.
-     *  The fourth item in a sublist, if it exists, is the second entity
-     *  named by the assertion.
-     */
-    private ArrayList<ArrayList<String>> assertions;
+    /** The text of my sentences, one after another, with extra spaces
+     *  removed. */
+    private final StringBuilder text;
+
+    /** True once I have read a question. */
+    private boolean asked;
+
+    /** True while I am reading assertions added by add. */
+    private boolean adding;
+
+    /** The most important problem noted so far with my sentences, as an
+     *  index into PROBLEMS, or the length of PROBLEMS if there is none. */
+    private int problem;
 
     /** A new Parser, containing no assertions or questions. */
     private Parser() {
-        this.assertions = new ArrayList<ArrayList<String>>();
-        this.questions = new ArrayList<ArrayList<String>>();
-        this.people = new LinkedHashSet<String>();
-        this.jobs = new LinkedHashSet<String>();
-        this.colors = new LinkedHashSet<String>();
+        this.names = new ArrayList<ArrayList<String>>();
+        this.ids = new ArrayList<HashMap<String, Integer>>();
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            this.names.add(new ArrayList<String>());
+            this.ids.add(new HashMap<String, Integer>());
+        }
+        this.assertions = new ArrayList<Sentence>();
+        this.questions = new ArrayList<Sentence>();
+        this.text = new StringBuilder();
+        this.problem = PROBLEMS.length;
     }
 
     /**
      * @return the colors
      */
     public LinkedHashSet<String> getColors() {
-        return this.colors;
+        return new LinkedHashSet<String>(this.names.get(Sentence.COLOR));
     }
 
     /**
      * @return the jobs
      */
     public LinkedHashSet<String> getJobs() {
-        return this.jobs;
+        return new LinkedHashSet<String>(this.names.get(Sentence.JOB));
     }
 
     /**
      * @return the people
      */
     public LinkedHashSet<String> getPeople() {
-        return this.people;
+        return new LinkedHashSet<String>(this.names.get(Sentence.PERSON));
+    }
+
+    /** Return the names of the entities of KIND, such as Sentence.JOB,
+     *  indexed by id, which should not be changed.  People's names are
+     *  lowercase. */
+    ArrayList<String> names(int kind) {
+        return this.names.get(kind);
+    }
+
+    /** Return the canonical form of my assertions, which is the same for
+     *  every puzzle that makes the same assertions about entities that
+     *  are perhaps named otherwise. */
+    Canonical canonical() {
+        int[] named = new int[Sentence.KINDS];
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            named[kind] = this.names.get(kind).size();
+        }
+        return new Canonical(this.assertions, named);
     }
 
     /** Returns a Parser that contains assertions and questions from
-     *  READER. */
+     *  READER, which is read to its end and closed.  To parse one of many
+     *  puzzles in a stream, READER may be a puzzle of a PuzzleStream. */
     static Parser parse(Reader reader) {
-        Scanner inp = new Scanner(reader);
+        long start = Stats.start();
         Parser result = new Parser();
-        ArrayList<String> sentences = new ArrayList<String>();
-        while (inp.hasNextLine()) {
-            String line = inp.nextLine();
-            if (line.trim().length() == 0) {
-                continue;
-            }
-            String[] words = line.trim().split("\\s+");
-            String sentence = "";
-            char lastChar = '0';
-            for (int i = 0; i < words.length; i += 1) {
-                lastChar = words[i].charAt(words[i].length() - 1);
-                if (lastChar == '.' || lastChar == '?') {
-                    if (words[i].length() > 1) {
-                        sentence += words[i];
-                        sentences.add(sentence);
-                        sentence = "";
-                    } else {
-                        sentence = sentence.trim();
-                        sentence += words[i];
-                        sentences.add(sentence);
-                    }
-                } else {
-                    sentence += words[i];
-                    sentence += " ";
-                }
-            }
-            if (!(lastChar == '.' || lastChar == '?')) {
-                inp.close();
-                throw new PuzzleException(
-                        "a line contained an incomplete sentence");
-            }
+        Lexer lexer = new Lexer(result);
+        try {
+            lexer.read(reader);
+        } catch (IOException e) {
+            throw new PuzzleException("the puzzle could not be read");
         }
-        inp.close();
-        distributeSentences(result, sentences);
-        checkGrammar(result);
-        result.assertions = loadEntities(result.assertions);
-        result.questions = loadEntities(result.questions);
-        result.people = people(result.assertions);
-        result.jobs = jobs(result.assertions);
-        result.colors = colors(result.assertions);
-        checkDiction(result);
+        lexer.end();
+        result.checkDiction(new int[Sentence.KINDS]);
+        Stats.time(Stats.PARSE, start);
         return result;
     }
 
-    /**
-     * @param puzzle   a parser that needs assertions and questions
-     * @param sentences   a list of assertions and questions
-     */
-    private static void distributeSentences(Parser puzzle,
-            ArrayList<String> sentences) {
-        char prevEndMark = '0';
-        char currEndMark = '0';
-        for (int i = 0; i < sentences.size(); i += 1) {
-            currEndMark = sentences.get(i).charAt(
-                    sentences.get(i).length() - 1);
-            if (currEndMark == '.') {
-                ArrayList<String> assertion = new ArrayList<String>();
-                assertion.add(sentences.get(i));
-                puzzle.assertions.add(assertion);
-            } else if (currEndMark == '?') {
-                ArrayList<String> question = new ArrayList<String>();
-                question.add(sentences.get(i));
-                puzzle.questions.add(question);
-            }
-            if (prevEndMark == '?' && currEndMark == '.') {
-                throw new PuzzleException(
-                        "assertions must precede questions");
+    /** Returns a Parser that contains the assertions and questions in
+     *  FILE, whose bytes go to the lexer as ASCII, or as the line
+     *  separators of UTF-8, without being decoded into a Reader's
+     *  characters.  A file of at least MAPPED_SIZE bytes is mapped into
+     *  memory, MAPPED_SIZE bytes at a time, and a smaller one is read in
+     *  whole. */
+    static Parser parse(Path file) throws IOException {
+        long began = Stats.start();
+        Parser result = new Parser();
+        Lexer lexer = new Lexer(result);
+        FileChannel channel = FileChannel.open(file);
+        try {
+            long size = channel.size();
+            if (size < MAPPED_SIZE) {
+                ByteBuffer bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    continue;
+                }
+                bytes.flip();
+                lexer.read(bytes);
+            } else {
+                for (long start = 0; start < size; start += MAPPED_SIZE) {
+                    lexer.read(channel.map(FileChannel.MapMode.READ_ONLY,
+                            start, Math.min(MAPPED_SIZE, size - start)));
+                }
             }
-            prevEndMark = currEndMark;
+        } finally {
+            channel.close();
         }
+        lexer.end();
+        result.checkDiction(new int[Sentence.KINDS]);
+        Stats.time(Stats.PARSE, began);
+        return result;
     }
 
-    /**
-     * @param puzzle   a parser containing potentially unformatted input
-     */
-    private static void checkGrammar(Parser puzzle) {
-        for (ArrayList<String> assertion : puzzle.assertions) {
-            if (!properAssertionGrammar(assertion)) {
-                throw new PuzzleException(
-                        "an assertion is unformatted");
-            }
+    /** Add the sentence LEXER has just read to my assertions or questions,
+     *  noting the entities it names.  A problem with the sentence is
+     *  noted, to be reported once the whole puzzle has been read. */
+    void recognize(Lexer lexer) {
+        boolean question = lexer.mark() == '?';
+        if (question && this.adding) {
+            complain(ADDED_QUESTION);
+            return;
+        } else if (question) {
+            this.asked = true;
+        } else if (this.asked && !this.adding) {
+            complain(MISPLACED_ASSERTION);
+        }
+        Sentence.Type type = classify(lexer);
+        if (type == null) {
+            complain(question ? UNFORMATTED_QUESTION : UNFORMATTED_ASSERTION);
+            return;
         }
-        for (ArrayList<String> question : puzzle.questions) {
-            if (!properQuestionGrammar(question)) {
-                throw new PuzzleException(
-                        "a question is unformatted");
+        int first = -1;
+        int second = -1;
+        for (int k = 0; k < type.length(); k += 1) {
+            int kind = type.blank(k);
+            if (kind != -1) {
+                int id = name(kind, lexer.word(k), question);
+                if (first == -1) {
+                    first = id;
+                } else {
+                    second = id;
+                }
             }
         }
+        int start = this.text.length();
+        lexer.appendTo(this.text);
+        Sentence sentence =
+                new Sentence(type, first, second, start, this.text.length());
+        if (question) {
+            this.questions.add(sentence);
+        } else {
+            this.assertions.add(sentence);
+        }
     }
 
-    /**
-     * @param assertion   a potentially unformatted assertion
-     * @return result   a boolean specifying whether the assertion is formatted
-     */
-    static boolean properAssertionGrammar(ArrayList<String> assertion) {
-        boolean result = false;
-        String person = "[A-Z][a-z]+";
-        String job = "[a-z]+";
-        String color = "[a-z]+";
-        ArrayList<String> forms = new ArrayList<String>();
-        forms.add(person + " lives in the " + color + " house\\.");
-        forms.add("The " + job + " lives in the " + color + " house\\.");
-        forms.add(person + " does not live in the " + color + " house\\.");
-        forms.add(
-                "The " + job + " does not live in the " + color + " house\\.");
-        forms.add(person + " is the " + job + "\\.");
-        forms.add(person + " is not the " + job + "\\.");
-        forms.add(person + " lives around here\\.");
-        forms.add("The " + job + " lives around here\\.");
-        forms.add("There is a " + color + " house\\.");
-        for (int i = 0; i < forms.size(); i += 1) {
-            if (assertion.get(0).matches(forms.get(i))) {
-                result = true;
-                assertion.add(ASSERTION_TYPES.get(i));
+    /** Return the type of the sentence LEXER has just read, or null if it
+     *  fits the form of none. */
+    private static Sentence.Type classify(Lexer lexer) {
+        for (Sentence.Type type : TYPES) {
+            if (type.mark() == lexer.mark()
+                    && type.length() == lexer.words() && fits(lexer, type)) {
+                return type;
             }
         }
-        return result;
+        return null;
     }
 
-    /**
-     * @param question   a potentially unformatted question
-     * @return result   a boolean specifying whether the question is formatted
-     */
-    static boolean properQuestionGrammar(ArrayList<String> question) {
-        boolean result = false;
-        String person = "[A-Z][a-z]+";
-        String job = "[a-z]+";
-        String color = "[a-z]+";
-        ArrayList<String> forms = new ArrayList<String>();
-        forms.add("What do you know about " + person + "\\?");
-        forms.add("What do you know about the " + job + "\\?");
-        forms.add("What do you know about the " + color + " house\\?");
-        forms.add("Who is the " + job + "\\?");
-        forms.add("Who lives in the " + color + " house\\?");
-        forms.add("What does " + person + " do\\?");
-        forms.add("What does the occupant of the " + color + " house do\\?");
-        forms.add("Where does " + person + " live\\?");
-        forms.add("Where does the " + job + " live\\?");
-        for (int i = 0; i < forms.size(); i += 1) {
-            if (question.get(0).matches(forms.get(i))) {
-                result = true;
-                question.add(QUESTION_TYPES.get(i));
+    /** Return true iff the words LEXER has just read fit the form of
+     *  TYPE, which has as many. */
+    private static boolean fits(Lexer lexer, Sentence.Type type) {
+        for (int k = 0; k < type.length(); k += 1) {
+            int blank = type.blank(k);
+            if (blank == Sentence.PERSON) {
+                if (lexer.shape(k) != Lexer.CAPITALIZED) {
+                    return false;
+                }
+            } else if (blank != -1) {
+                if (lexer.shape(k) != Lexer.LOWERCASE) {
+                    return false;
+                }
+            } else if (!lexer.matches(k, type.word(k))) {
+                return false;
             }
         }
-        return result;
+        return true;
     }
 
-    /**
-     * @param puzzle   a parser containing potentially unformatted input
-     */
-    private static void checkDiction(Parser puzzle) {
-        LinkedHashSet<String> queriedPeople = people(puzzle.questions);
-        LinkedHashSet<String> queriedJobs = jobs(puzzle.questions);
-        LinkedHashSet<String> queriedColors = colors(puzzle.questions);
-        if (!puzzle.people.containsAll(queriedPeople)
-                || !puzzle.jobs.containsAll(queriedJobs)
-                || !puzzle.colors.containsAll(queriedColors)) {
-            throw new PuzzleException("you asked about something random");
+    /** Return the id of the entity of KIND named WORD in an assertion,
+     *  or, if ASKED, in a question, where it must have been named by an
+     *  assertion before it.  The id of an entity no assertion names
+     *  is -1. */
+    private int name(int kind, String word, boolean asked) {
+        String name = kind == Sentence.PERSON ? word.toLowerCase() : word;
+        HashMap<String, Integer> named = this.ids.get(kind);
+        Integer id = named.get(name);
+        if (id != null) {
+            return id;
+        } else if (asked) {
+            complain(RANDOM_QUESTION);
+            return -1;
         }
-        enforceDistinctness(KEYSET, puzzle.people);
-        enforceDistinctness(KEYSET, puzzle.jobs);
-        enforceDistinctness(KEYSET, puzzle.colors);
-        enforceDistinctness(capitalizeAll(puzzle.people), puzzle.jobs);
-        enforceDistinctness(capitalizeAll(puzzle.people), puzzle.colors);
-        enforceDistinctness(puzzle.jobs, puzzle.colors);
+        named.put(name, named.size());
+        this.names.get(kind).add(name);
+        return named.size() - 1;
     }
 
-    /**
-     * Throws an error if SET1 and SET2 have intersecting elements.
-     */
-    private static void enforceDistinctness(
-            LinkedHashSet<String> set1, LinkedHashSet<String> set2) {
-        LinkedHashSet<String> clone = new LinkedHashSet<String>(set1);
-        clone.retainAll(set2);
-        if (!clone.isEmpty()) {
-            throw new PuzzleException("keywords, people, occupations, and "
-                    + "colors must have unique spellings");
-        }
+    /** Note that my sentences have problem number PROBLEM of PROBLEMS. */
+    private void complain(int problem) {
+        this.problem = Math.min(this.problem, problem);
     }
 
-    /**
-     * @param sentences  either the assertions or questions of a puzzle
-     * @return sentences  the argument, but with the entity names appended
-     *                    to the the sentences wrapper
-     */
-    private static ArrayList<ArrayList<String>> loadEntities(
-            ArrayList<ArrayList<String>> sentences) {
-        for (int i = 0; i < sentences.size(); i += 1) {
-            String[] line = sentences.get(i).get(0).split(" ");
-            for (int j = 0; j < line.length; j += 1) {
-                String word = line[j].toLowerCase();
-                if (j == line.length - 1) {
-                    word = line[j].replace(".", "").replace("?", "");
-                }
-                if (!KEYSET.contains(word)) {
-                    sentences.get(i).add(word);
+    /** Throw the most important of the problems noted with my sentences,
+     *  if any, or an error if a name is spelled like a keyword or like an
+     *  entity of another kind.  Only names after the first NAMED[KIND]
+     *  names of each KIND need to be checked. */
+    private void checkDiction(int[] named) {
+        if (this.problem < PROBLEMS.length) {
+            throw new PuzzleException(PROBLEMS[this.problem]);
+        }
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            ArrayList<String> names = this.names.get(kind);
+            for (int id = named[kind]; id < names.size(); id += 1) {
+                if (!distinct(kind, names.get(id))) {
+                    throw new PuzzleException("keywords, people, occupations, "
+                            + "and colors must have unique spellings");
                 }
             }
         }
-        return sentences;
     }
 
-    /**
-     * @param sentences  either the assertions or the questions of a puzzle
-     * @return result  a LinkedHashSet of the people found in sentences
-     */
-    private static LinkedHashSet<String> people(
-            ArrayList<ArrayList<String>> sentences) {
-        LinkedHashSet<String> result = new LinkedHashSet<String>();
-        for (int i = 0; i < sentences.size(); i += 1) {
-            String type = sentences.get(i).get(1);
-            if (type.equals(ASSERTION_TYPES.get(0))
-                    || type.equals(ASSERTION_TYPES.get(2))
-                    || type.equals(ASSERTION_TYPES.get(4))
-                    || type.equals(ASSERTION_TYPES.get(5))
-                    || type.equals(ASSERTION_TYPES.get(6))
-                    || type.equals(QUESTION_TYPES.get(0))
-                    || type.equals(QUESTION_TYPES.get(5))
-                    || type.equals(QUESTION_TYPES.get(7))) {
-                result.add(sentences.get(i).get(2).toLowerCase());
-            }
+    /** Return true iff NAME, the name of an entity of KIND, is not a
+     *  keyword, and no job or color is spelled like a capitalized
+     *  person, and no job is spelled like a color. */
+    private boolean distinct(int kind, String name) {
+        HashMap<String, Integer> jobs = this.ids.get(Sentence.JOB);
+        HashMap<String, Integer> colors = this.ids.get(Sentence.COLOR);
+        if (KEYSET.contains(name)) {
+            return false;
+        } else if (kind == Sentence.PERSON) {
+            return !jobs.containsKey(capitalize(name))
+                    && !colors.containsKey(capitalize(name));
         }
-        return result;
+        String person = name.toLowerCase();
+        if (capitalize(person).equals(name)
+                && this.ids.get(Sentence.PERSON).containsKey(person)) {
+            return false;
+        }
+        return !(kind == Sentence.JOB ? colors : jobs).containsKey(name);
     }
 
     /**
-     * @param sentences  either the assertions or the questions of a puzzle
-     * @return result  a LinkedHashSet of the jobs found in sentences
+     * @param solver a solver that needs to be populated with the information
+     *        in this parser
+     * @return  the solver after at has been given the information
      */
-    private static LinkedHashSet<String> jobs(
-            ArrayList<ArrayList<String>> sentences) {
-        LinkedHashSet<String> result = new LinkedHashSet<String>();
-        for (int i = 0; i < sentences.size(); i += 1) {
-            String type = sentences.get(i).get(1);
-            if (type.equals(ASSERTION_TYPES.get(1))
-                    || type.equals(ASSERTION_TYPES.get(3))
-                    || type.equals(ASSERTION_TYPES.get(7))
-                    || type.equals(QUESTION_TYPES.get(1))
-                    || type.equals(QUESTION_TYPES.get(3))
-                    || type.equals(QUESTION_TYPES.get(8))) {
-                result.add(sentences.get(i).get(2));
-            } else if (type.equals(ASSERTION_TYPES.get(4))
-                    || type.equals(ASSERTION_TYPES.get(5))) {
-                result.add(sentences.get(i).get(3));
+    Solver inform(Solver solver) {
+        return explore(propagate(solver));
+    }
+
+    /** Return SOLVER, or the most complete solution that every way of
+     *  completing it agrees with, if it is not already solved. */
+    private static Solver explore(Solver solver) {
+        if (solver.getAssociations().size() < solver.getComplexity() * 3
+                && !solver.impossible()) {
+            long start = Stats.start();
+            Solver possibleAnswer = solver.exploreBranches();
+            solver = possibleAnswer != null ? possibleAnswer : solver;
+            Stats.time(Stats.BRANCH, start);
+        }
+        return solver;
+    }
+
+    /** Add the assertions in CLUES, which is read to its end and closed,
+     *  to mine, and return SOLVER, the result of inform or of an earlier
+     *  add, informed of them.  Only the inferences that follow from the
+     *  new assertions are made.  A new entity takes the place of an
+     *  anonymous one of its kind, unless there is none, in which case the
+     *  puzzle grows and a new solver is informed of every assertion.
+     *  SOLVER should not be used once a new solver is returned.  If CLUES
+     *  has a problem, or a question, an error is thrown and I am left as I
+     *  was. */
+    Solver add(Reader clues, Solver solver) {
+        int assertions = this.assertions.size();
+        int length = this.text.length();
+        int[] named = new int[Sentence.KINDS];
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            named[kind] = this.names.get(kind).size();
+        }
+        long start = Stats.start();
+        Lexer lexer = new Lexer(this);
+        this.adding = true;
+        try {
+            try {
+                lexer.read(clues);
+            } catch (IOException e) {
+                throw new PuzzleException("the puzzle could not be read");
             }
+            lexer.end();
+            checkDiction(named);
+        } catch (PuzzleException e) {
+            this.problem = PROBLEMS.length;
+            truncate(assertions, length, named);
+            throw e;
+        } finally {
+            this.adding = false;
         }
-        return result;
+        Stats.time(Stats.PARSE, start);
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            ArrayList<String> names = this.names.get(kind);
+            for (int id = named[kind]; id < names.size(); id += 1) {
+                if (!solver.name(kind, names.get(id))) {
+                    return inform(solver.blank());
+                }
+            }
+        }
+        start = Stats.start();
+        for (int k = assertions; k < this.assertions.size(); k += 1) {
+            inform(solver, k);
+        }
+        Stats.time(Stats.INFORM, start);
+        start = Stats.start();
+        solver.makeInferences();
+        Stats.time(Stats.PROPAGATE, start);
+        return explore(solver);
     }
 
-    /**
-     * @param sentences  either the assertions or the questions of a puzzle
-     * @return result  a LinkedHashSet of the colors found in sentences
-     */
-    private static LinkedHashSet<String> colors(
-            ArrayList<ArrayList<String>> sentences) {
-        LinkedHashSet<String> result = new LinkedHashSet<String>();
-        for (int i = 0; i < sentences.size(); i += 1) {
-            String type = sentences.get(i).get(1);
-            if (type.equals(ASSERTION_TYPES.get(8))
-                    || type.equals(QUESTION_TYPES.get(2))
-                    || type.equals(QUESTION_TYPES.get(4))
-                    || type.equals(QUESTION_TYPES.get(6))) {
-                result.add(sentences.get(i).get(2));
-            } else if (type.equals(ASSERTION_TYPES.get(0))
-                    || type.equals(ASSERTION_TYPES.get(1))
-                    || type.equals(ASSERTION_TYPES.get(2))
-                    || type.equals(ASSERTION_TYPES.get(3))) {
-                result.add(sentences.get(i).get(3));
+    /** Forget all but my first ASSERTIONS assertions, the first LENGTH
+     *  characters of their text, and the first NAMED[KIND] names of each
+     *  KIND. */
+    private void truncate(int assertions, int length, int[] named) {
+        while (this.assertions.size() > assertions) {
+            this.assertions.remove(this.assertions.size() - 1);
+        }
+        this.text.setLength(length);
+        for (int kind = 0; kind < Sentence.KINDS; kind += 1) {
+            ArrayList<String> names = this.names.get(kind);
+            while (names.size() > named[kind]) {
+                this.ids.get(kind).remove(names.remove(names.size() - 1));
             }
         }
-        return result;
     }
 
-    /**
-     * @param solver a solver that needs to be populated with the information
-     *        in this parser
-     * @return  the solver after at has been given the information
-     */
-    Solver inform(Solver solver) {
-        solver.setParameters(this.people, this.jobs, this.colors);
+    /** Inform SOLVER of every assertion and make the inferences that
+     *  follow, without exploring any branches.  Return SOLVER. */
+    Solver propagate(Solver solver) {
+        long start = Stats.start();
+        solver.setParameters(getPeople(), getJobs(), getColors());
         for (int i = 0; i < this.assertions.size(); i += 1) {
-            if (this.assertions.get(i).size() == 4) {
-                inform(solver, i);
-            }
+            inform(solver, i);
         }
+        Stats.time(Stats.INFORM, start);
+        start = Stats.start();
         solver.makeInferences();
-        if (solver.getAssociations().size() < solver.getComplexity() * 3
-                && !solver.impossible()) {
-            Solver possibleAnswer = solver.exploreBranches();
-            solver = possibleAnswer != null ? possibleAnswer : solver;
-        }
+        Stats.time(Stats.PROPAGATE, start);
         return solver;
     }
 
-    /** Inform SOLVER of the information in assertion K. */
+    /** Inform SOLVER of the information in assertion K.  SOLVER must have
+     *  been given my people, jobs, and colors in order, so that its ids
+     *  for them are mine. */
     void inform(Solver solver, int k) {
-        String e0 = this.assertions.get(k).get(2).toLowerCase();
-        String e1 = this.assertions.get(k).get(3).toLowerCase();
-        String type = this.assertions.get(k).get(1);
-        if (type.equals(ASSERTION_TYPES.get(0))) {
+        Sentence assertion = this.assertions.get(k);
+        int e0 = assertion.entity(0);
+        int e1 = assertion.entity(1);
+        switch (assertion.type()) {
+        case PERSON_WITH_COLOR:
             solver.personColorAssociate(e0, e1);
-        } else if (type.equals(ASSERTION_TYPES.get(1))) {
+            break;
+        case JOB_WITH_COLOR:
             solver.jobColorAssociate(e0, e1);
-        } else if (type.equals(ASSERTION_TYPES.get(2))) {
+            break;
+        case PERSON_NOT_WITH_COLOR:
             solver.personColorDisassociate(e0, e1);
-        } else if (type.equals(ASSERTION_TYPES.get(3))) {
+            break;
+        case JOB_NOT_WITH_COLOR:
             solver.jobColorDisassociate(e0, e1);
-        } else if (type.equals(ASSERTION_TYPES.get(4))) {
+            break;
+        case PERSON_WITH_JOB:
             solver.personJobAssociate(e0, e1);
-        } else if (type.equals(ASSERTION_TYPES.get(5))) {
+            break;
+        case PERSON_NOT_WITH_JOB:
             solver.personJobDisassociate(e0, e1);
+            break;
+        default:
+            break;
         }
     }
 
@@ -397,7 +433,7 @@ class Parser {
     /** Returns the text of assertion number K (numbering from 0), with extra
      *  spaces removed. */
     String getAssertion(int k) {
-        return this.assertions.get(k).get(0);
+        return textOf(this.assertions.get(k));
     }
 
     /** Returns the number of questions I have parsed. */
@@ -408,38 +444,24 @@ class Parser {
     /** Return the text of question number K (numbering from 0), with extra
      *  spaces removed. */
     String getQuestion(int k) {
-        return this.questions.get(k).get(0);
+        return textOf(this.questions.get(k));
+    }
+
+    /** Return the text of SENTENCE, one of mine. */
+    private String textOf(Sentence sentence) {
+        return this.text.substring(sentence.start(), sentence.end());
     }
 
     /** Return the answer to question K, according to the information
      *  in SOLVER. */
     String getAnswer(Solver solver, int k) {
-        String type = questions.get(k).get(1);
-        String topic = questions.get(k).get(1).equals(QUESTION_TYPES.get(0))
-                || questions.get(k).get(1).equals(QUESTION_TYPES.get(5))
-                || questions.get(k).get(1).equals(QUESTION_TYPES.get(7))
-                ? capitalize(questions.get(k).get(2))
-                : questions.get(k).get(2);
-        String result = null;
-        ArrayList<ArrayList<String>> info =
-                solver.knownAbout(topic.toLowerCase());
-        ArrayList<String> attr1guesses = info.get(0);
-        ArrayList<String> attr2guesses = info.get(1);
-        String attr1 = questions.get(k).get(1).equals(QUESTION_TYPES.get(0))
-                || questions.get(k).get(1).equals(QUESTION_TYPES.get(5))
-                || questions.get(k).get(1).equals(QUESTION_TYPES.get(7))
-                ? attr1guesses.get(0) : capitalize(attr1guesses.get(0));
-        String attr2 = attr2guesses.get(0);
-        boolean attr1known = attr1guesses.size() == 1 && !isAnonymous(attr1);
-        boolean attr2known = attr2guesses.size() == 1 && !isAnonymous(attr2);
-        if (QUESTION_TYPES.indexOf(type) < 3) {
-            result = answerBroadQuestion(attr1known, attr2known, type,
-                    topic, attr1, attr2);
-        } else {
-            result = answerSpecificQuestion(attr1known, attr2known, type,
-                    topic, attr1, attr2);
-        }
-        return result;
+        return getAnswer(solver.answers(), k);
+    }
+
+    /** Return the answer to question K, according to ANSWERS. */
+    String getAnswer(Answers answers, int k) {
+        Sentence question = this.questions.get(k);
+        return answers.answer(question.type(), question.entity(0));
     }
 
     /**
@@ -450,117 +472,9 @@ class Parser {
         return Character.toUpperCase(name.charAt(0)) + name.substring(1);
     }
 
-    /**
-     * @param uncapitalizedSet  a set of names that needs to be capitalized
-     * @return a set containing every name in the input, except capitalized
-     */
-    private static LinkedHashSet<String> capitalizeAll(
-            LinkedHashSet<String> uncapitalizedSet) {
-        LinkedHashSet<String> result = new LinkedHashSet<String>();
-        Iterator<String> iter = uncapitalizedSet.iterator();
-        while (iter.hasNext()) {
-            result.add(capitalize(iter.next()));
-        }
-        return result;
-    }
-
-    /** Return TRUE if NAME represents an unknown name returned
-     *  by makeName. */
-    private static boolean isAnonymous(String name) {
-        return name.contains("#");
-    }
-
-    /**
-     * @param attr1known  true when their is only 1 guess for attr1
-     * @param attr2known  true when their is only 2 guess for attr2
-     * @param type  the type of question, which is enumerated in QUESTION_TYPES
-     * @param topic  the entity which appears in the question
-     * @param attr1  a guess about the topic's first attribute
-     * @param attr2  a guess about the topic's second attribute
-     * @return result  the answer text for the question
-     */
-    private static String answerBroadQuestion(
-            boolean attr1known, boolean attr2known, String type,
-            String topic, String attr1, String attr2) {
-        String result = "Nothing.";
-        if (type.equals(QUESTION_TYPES.get(0))) {
-            if (attr1known && attr2known) {
-                result = String.format(
-                        "%s is the %s and lives in the %s house.",
-                        topic, attr1, attr2);
-            } else if (attr1known && !attr2known) {
-                result = String.format("%s is the %s.",
-                        topic, attr1);
-            } else if (!attr1known && attr2known) {
-                result = String.format("%s lives in the %s house.",
-                        topic, attr2);
-            }
-        } else if (type.equals(QUESTION_TYPES.get(1))) {
-            if (attr1known && attr2known) {
-                result = String.format(
-                        "%s is the %s and lives in the %s house.",
-                        attr1, topic, attr2);
-            } else if (attr1known && !attr2known) {
-                result = String.format("%s is the %s.",
-                        attr1, topic);
-            } else if (!attr1known && attr2known) {
-                result = String.format("The %s lives in the %s house.",
-                        topic, attr2);
-            }
-        } else if (type.equals(QUESTION_TYPES.get(2))) {
-            if (attr1known && attr2known) {
-                result = String.format(
-                        "%s is the %s and lives in the %s house.",
-                        attr1, attr2, topic);
-            } else if (attr1known && !attr2known) {
-                result = String.format("%s lives in the %s house.",
-                        attr1, topic);
-            } else if (!attr1known && attr2known) {
-                result = String.format("The %s lives in the %s house.",
-                        attr2, topic);
-            }
-        }
-        return result;
-    }
-
-    /**
-     * @param attr1known  true when their is only 1 guess for attr1
-     * @param attr2known  true when their is only 2 guess for attr2
-     * @param type  the type of question, which is enumerated in QUESTION_TYPES
-     * @param topic  the entity which appears in the question
-     * @param attr1  a guess about the topic's first attribute
-     * @param attr2  a guess about the topic's second attribute
-     * @return result  the answer text for the question
-     */
-    private static String answerSpecificQuestion(
-            boolean attr1known, boolean attr2known, String type,
-            String topic, String attr1, String attr2) {
-        String result = "I don't know.";
-        if (attr1known) {
-            if (type.equals(QUESTION_TYPES.get(3))) {
-                result = String.format("%s is the %s.",
-                        attr1, topic);
-            } else if (type.equals(QUESTION_TYPES.get(4))) {
-                result = String.format("%s lives in the %s house.",
-                        attr1, topic);
-            } else if (type.equals(QUESTION_TYPES.get(5))) {
-                result = String.format("%s is the %s.",
-                        topic, attr1);
-            }
-        }
-        if (attr2known) {
-            if (type.equals(QUESTION_TYPES.get(6))) {
-                result = String.format("The %s lives in the %s house.",
-                        attr2, topic);
-            } else if (type.equals(QUESTION_TYPES.get(7))) {
-                result = String.format("%s lives in the %s house.",
-                        topic, attr2);
-            } else if (type.equals(QUESTION_TYPES.get(8))) {
-                result = String.format("The %s lives in the %s house.",
-                        topic, attr2);
-            }
-        }
-        return result;
+    /** Return every keyword, in lower case. */
+    static Set<String> keywords() {
+        return Collections.unmodifiableSet(KEYSET);
     }
 
     /** Phrases that collectively contain every keyword. */
@@ -574,41 +488,39 @@ class Parser {
             + "not live in "
             + "where";
 
+    /** The number of bytes at and above which a file is mapped into
+     *  memory rather than read, and the number mapped at a time. */
+    private static final int MAPPED_SIZE = 1 << 24;
+
+    /** Every type of sentence. */
+    private static final Sentence.Type[] TYPES = Sentence.Type.values();
+
+    /** The problems a puzzle's sentences may have, most important first,
+     *  which are reported once the whole puzzle has been read. */
+    private static final String[] PROBLEMS = {
+        "assertions must precede questions",
+        "an assertion is unformatted",
+        "a question is unformatted",
+        "you asked about something random",
+        "only assertions may be added",
+    };
+
+    /** The problem of an assertion that follows a question. */
+    private static final int MISPLACED_ASSERTION = 0;
+
+    /** The problem of an assertion that fits no form. */
+    private static final int UNFORMATTED_ASSERTION = 1;
+
+    /** The problem of a question that fits no form. */
+    private static final int UNFORMATTED_QUESTION = 2;
+
+    /** The problem of a question about an entity no assertion names. */
+    private static final int RANDOM_QUESTION = 3;
+
+    /** The problem of a question among the assertions given to add. */
+    private static final int ADDED_QUESTION = 4;
+
     /** The set of all keywords. */
     private static final LinkedHashSet<String> KEYSET =
             new LinkedHashSet<String>(Arrays.asList(KEYSTRING.split("\\s+")));
-
-    /** Phrases that uniquely identify every assertion type. */
-    private static final String ASSERTION_TYPE_STRING =
-            "person_with_color "
-            + "job_with_color "
-            + "person_not_with_color "
-            + "job_not_with_color "
-            + "person_with_job "
-            + "person_not_with_job "
-            + "person_exists "
-            + "job_exists "
-            + "color_exists";
-
-    /** A list of the nine assertion types. */
-    private static final ArrayList<String> ASSERTION_TYPES =
-            new ArrayList<String>(Arrays.asList(
-                    ASSERTION_TYPE_STRING.trim().split("\\s+")));
-
-    /** Phrases that uniquely identify every question type. */
-    private static final String QUESTION_TYPE_STRING =
-            "about_person "
-            + "about_job "
-            + "about_color "
-            + "person_of_job "
-            + "person_of_color "
-            + "job_of_person "
-            + "job_of_color "
-            + "color_of_person "
-            + "color_of_job";
-
-    /** A list of the nine question types. */
-    private static final ArrayList<String> QUESTION_TYPES =
-            new ArrayList<String>(Arrays.asList(
-                    QUESTION_TYPE_STRING.trim().split("\\s+")));
 }
@@ -0,0 +1,107 @@
+package puzzle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/** A stream of puzzles, one after another, separated by delimiter lines.
+ *  Each puzzle can be read by itself, as a Reader that ends at the next
+ *  delimiter line, so that a puzzle can be parsed as soon as it has
+ *  arrived, without reading any part of the puzzles after it.
+ *  @author Tanner Wauchope */
+class PuzzleStream {
+
+    /** The line that separates puzzles, unless told otherwise. */
+    static final String DEFAULT_DELIMITER = "---";
+
+    /** The text of the puzzles. */
+    private final BufferedReader input;
+
+    /** The line that separates one puzzle from the next. */
+    private final String delimiter;
+
+    /** The puzzle most recently returned by next, or null. */
+    private Puzzle current;
+
+    /** A stream of the puzzles in INPUT, separated by lines that consist
+     *  of DELIMITER. */
+    PuzzleStream(Reader input, String delimiter) {
+        this.input = input instanceof BufferedReader ? (BufferedReader) input
+                : new BufferedReader(input);
+        this.delimiter = delimiter;
+    }
+
+    /** Return a Reader of the next puzzle, which ends before the next
+     *  delimiter line or at the end of the input, or null if no puzzles
+     *  remain.  Whatever has not been read of the previous puzzle is
+     *  skipped. */
+    Reader next() throws IOException {
+        if (this.current != null) {
+            while (this.current.nextLine() != null) {
+                continue;
+            }
+        }
+        String first = this.input.readLine();
+        if (first == null) {
+            this.current = null;
+            return null;
+        }
+        this.current = new Puzzle(first);
+        return this.current;
+    }
+
+    /** One puzzle of this stream. */
+    private class Puzzle extends Reader {
+
+        /** The line being read, followed by a newline, or null once the
+         *  puzzle has ended. */
+        private String line;
+
+        /** The number of characters of this.line already read. */
+        private int position;
+
+        /** A puzzle whose first line is FIRST. */
+        Puzzle(String first) {
+            this.line = first.equals(PuzzleStream.this.delimiter) ? null
+                    : first + "\n";
+        }
+
+        /** Move on to the next line of this puzzle, and return it, or
+         *  null if the puzzle has ended. */
+        String nextLine() throws IOException {
+            if (this.line != null) {
+                String next = PuzzleStream.this.input.readLine();
+                this.line = next == null
+                        || next.equals(PuzzleStream.this.delimiter) ? null
+                        : next + "\n";
+                this.position = 0;
+            }
+            return this.line;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length)
+                throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (this.line != null && this.position == this.line.length()) {
+                nextLine();
+            }
+            if (this.line == null) {
+                return -1;
+            }
+            int count = Math.min(length, this.line.length() - this.position);
+            this.line.getChars(this.position, this.position + count,
+                    buffer, offset);
+            this.position += count;
+            return count;
+        }
+
+        /** Leaves the rest of the stream open for the puzzles after this
+         *  one. */
+        @Override
+        public void close() {
+        }
+    }
+}
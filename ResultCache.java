@@ -0,0 +1,256 @@
+package puzzle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** The answers to puzzles already solved, kept in the files of a
+ *  directory so that they outlast the program that solved them.  Each
+ *  file is named by a hash of the canonical form of a puzzle and of the
+ *  version of the engine that solved it, and holds that form, to tell
+ *  apart puzzles whose hashes collide, followed by the puzzle's answers
+ *  in terms of the labels the form gives its entities.  So a puzzle is
+ *  answered from the file of any puzzle that differs from it only in
+ *  the order of its assertions and the names of its entities.  Once the
+ *  files take up more than a given number of bytes, those least recently
+ *  used are deleted.  Using a file sets its modification time, so that
+ *  the order of use is known to the next program that keeps its answers
+ *  in the same directory.  Any number of threads may use me at once:
+ *  only my record of the sizes of my files is kept under a lock, and
+ *  files are read, written, and deleted outside it.
+ *  @author Tanner Wauchope */
+class ResultCache {
+
+    /** The first line of every file, which changes with the format of the
+     *  files or the version of the engine. */
+    private static final String HEADER = "puzzle answers 2 engine "
+            + Solver.VERSION;
+
+    /** The number of characters in the name of a file, which is a
+     *  SHA-256 hash in hexadecimal. */
+    private static final int KEY_LENGTH = 64;
+
+    /** The directory of my files. */
+    private final Path directory;
+
+    /** The most bytes my files may take up. */
+    private final long capacity;
+
+    /** The size of each of my files, by name, least recently used
+     *  first. */
+    private final LinkedHashMap<String, Long> sizes;
+
+    /** The number of bytes my files take up. */
+    private long size;
+
+    /** A cache of answers kept in DIRECTORY, which is made if need be, in
+     *  files that take up at most CAPACITY bytes in all. */
+    ResultCache(Path directory, long capacity) throws IOException {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.sizes = new LinkedHashMap<String, Long>();
+        Files.createDirectories(directory);
+        ArrayList<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> entries =
+                Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (isKey(entry.getFileName().toString())
+                        && Files.isRegularFile(entry)) {
+                    files.add(entry);
+                }
+            }
+        }
+        final LinkedHashMap<Path, FileTime> times =
+                new LinkedHashMap<Path, FileTime>();
+        for (Path file : files) {
+            times.put(file, Files.getLastModifiedTime(file));
+        }
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path a, Path b) {
+                return times.get(a).compareTo(times.get(b));
+            }
+        });
+        String newest = null;
+        for (Path file : files) {
+            newest = file.getFileName().toString();
+            record(newest, Files.size(file));
+        }
+        delete(evict(newest));
+    }
+
+    /** Return the answers kept for PUZZLE, whose canonical form is FORM,
+     *  or null if there are none. */
+    Answers get(Parser puzzle, Canonical form) {
+        ArrayList<String> lines = form.lines();
+        String key = key(lines);
+        Path file = this.directory.resolve(key);
+        Answers result;
+        try (BufferedReader input = Files.newBufferedReader(file, UTF_8)) {
+            if (!HEADER.equals(input.readLine()) || !Integer.toString(
+                    lines.size()).equals(input.readLine())) {
+                return null;
+            }
+            for (String line : lines) {
+                if (!line.equals(input.readLine())) {
+                    return null;
+                }
+            }
+            result = Answers.read(input, puzzle, form);
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+            record(key, Files.size(file));
+        } catch (IOException e) {
+            forget(key);
+        }
+        return result;
+    }
+
+    /** Keep ANSWERS, the answers to the puzzle whose canonical form is FORM,
+     *  deleting the answers least recently used if need be to make room.
+     *  If they cannot be kept, nothing is. */
+    void put(Canonical form, Answers answers) {
+        ArrayList<String> lines = form.lines();
+        String key = key(lines);
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(this.directory, key, ".tmp");
+            try (BufferedWriter output =
+                    Files.newBufferedWriter(temporary, UTF_8)) {
+                output.write(HEADER);
+                output.write('\n');
+                output.write(Integer.toString(lines.size()));
+                output.write('\n');
+                for (String line : lines) {
+                    output.write(line);
+                    output.write('\n');
+                }
+                answers.write(output, form);
+            }
+            Path file = this.directory.resolve(key);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            temporary = null;
+            long bytes = Files.size(file);
+            ArrayList<String> stale;
+            synchronized (this) {
+                record(key, bytes);
+                stale = evict(key);
+            }
+            delete(stale);
+        } catch (IOException e) {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Note that the file named KEY, of BYTES bytes, was just used. */
+    private synchronized void record(String key, long bytes) {
+        forget(key);
+        this.sizes.put(key, bytes);
+        this.size += bytes;
+    }
+
+    /** Note that there is no file named KEY. */
+    private synchronized void forget(String key) {
+        Long bytes = this.sizes.remove(key);
+        if (bytes != null) {
+            this.size -= bytes;
+        }
+    }
+
+    /** Forget the files least recently used, other than the file named
+     *  KEEP, until my files take up no more than my capacity, or there
+     *  are no others, and return their names, for the caller to delete.
+     *  A file that then cannot be deleted stays forgotten, so that it no
+     *  longer counts against my capacity and is not tried again. */
+    private synchronized ArrayList<String> evict(String keep) {
+        ArrayList<String> result = new ArrayList<String>();
+        Iterator<Map.Entry<String, Long>> eldest =
+                this.sizes.entrySet().iterator();
+        while (this.size > this.capacity && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (!entry.getKey().equals(keep)) {
+                result.add(entry.getKey());
+                this.size -= entry.getValue();
+                eldest.remove();
+            }
+        }
+        return result;
+    }
+
+    /** Delete the files named by KEYS, as far as they can be deleted. */
+    private void delete(ArrayList<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(this.directory.resolve(key));
+            } catch (IOException e) {
+                continue;
+            }
+        }
+    }
+
+    /** Return the name of the file that keeps the answers to a puzzle
+     *  whose canonical form has LINES. */
+    private static String key(ArrayList<String> lines) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(HEADER.getBytes(UTF_8));
+        for (String line : lines) {
+            digest.update((byte) '\n');
+            digest.update(line.getBytes(UTF_8));
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /** Return true iff NAME could be the name of one of my files. */
+    private static boolean isKey(String name) {
+        if (name.length() != KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i += 1) {
+            if (Character.digit(name.charAt(i), 16) == -1
+                    || Character.isUpperCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,463 @@
+package puzzle;
+
+import java.util.Arrays;
+
+/** A solver for boolean formulas in conjunctive normal form.  Variables
+ *  are numbered from 1, and a clause is an array of literals, each of
+ *  which is a variable, or a negated variable such as -3.  The search is
+ *  conflict driven: unit clauses are propagated through two watched
+ *  literals per clause, every conflict is analyzed into a learned clause
+ *  that is asserted after jumping back, the variables involved in recent
+ *  conflicts are decided first, and the search restarts on the Luby
+ *  sequence.  Clauses may be added between calls to solve, so that a
+ *  solution can be blocked in order to look for another.
+ *  @author Tanner Wauchope */
+class Sat {
+
+    /** The value of a literal that is not yet assigned. */
+    private static final int UNASSIGNED = -1;
+
+    /** The number of conflicts in the first, and shortest, restart. */
+    private static final int RESTART_BASE = 100;
+
+    /** The factor by which variable activities fade after a conflict. */
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    /** The activity beyond which all activities are scaled down. */
+    private static final double ACTIVITY_LIMIT = 1e100;
+
+    /** The number of variables. */
+    private final int variables;
+
+    /** Every clause, given or learned, as internal literals.  The first
+     *  two literals of a clause of two or more are the watched ones, and
+     *  the first literal of a clause that implied a value is that value. */
+    private int[][] clauses;
+
+    /** The number of clauses in this.clauses. */
+    private int clauseCount;
+
+    /** The clauses watching each internal literal, as lists of indices
+     *  into this.clauses. */
+    private final int[][] watches;
+
+    /** The number of clauses watching each internal literal. */
+    private final int[] watchCounts;
+
+    /** The value of each variable: 1, 0, or UNASSIGNED. */
+    private final int[] values;
+
+    /** The decision level at which each variable was assigned. */
+    private final int[] levels;
+
+    /** The clause that implied each variable, or -1 if it was decided. */
+    private final int[] reasons;
+
+    /** The value last given to each variable, which decisions reuse. */
+    private final int[] phases;
+
+    /** How often each variable has recently been part of a conflict. */
+    private final double[] activities;
+
+    /** The amount by which the next conflict raises an activity. */
+    private double increment;
+
+    /** Every assigned literal, in the order of assignment. */
+    private final int[] trail;
+
+    /** The number of literals in this.trail. */
+    private int trailSize;
+
+    /** The index in this.trail of the next literal to propagate. */
+    private int propagated;
+
+    /** The size of this.trail at the start of each decision level. */
+    private final int[] levelStarts;
+
+    /** The current decision level. */
+    private int level;
+
+    /** The unassigned variables that may be decided, as a heap ordered
+     *  by activity. */
+    private final int[] heap;
+
+    /** The number of variables in this.heap. */
+    private int heapSize;
+
+    /** The position of each variable in this.heap, or -1. */
+    private final int[] heapPositions;
+
+    /** Marks on the variables met while analyzing a conflict. */
+    private final boolean[] seen;
+
+    /** True once the clauses are known to have no solution. */
+    private boolean unsatisfiable;
+
+    /** A new formula over VARIABLES variables, with no clauses. */
+    Sat(int variables) {
+        this.variables = variables;
+        this.clauses = new int[16][];
+        this.watches = new int[2 * variables][];
+        this.watchCounts = new int[2 * variables];
+        for (int l = 0; l < 2 * variables; l += 1) {
+            this.watches[l] = new int[4];
+        }
+        this.values = new int[variables];
+        this.levels = new int[variables];
+        this.reasons = new int[variables];
+        this.phases = new int[variables];
+        this.activities = new double[variables];
+        this.increment = 1;
+        this.trail = new int[variables];
+        this.levelStarts = new int[variables + 1];
+        this.heap = new int[variables];
+        this.heapPositions = new int[variables];
+        this.seen = new boolean[variables];
+        Arrays.fill(this.values, UNASSIGNED);
+        for (int v = 0; v < variables; v += 1) {
+            this.heapPositions[v] = -1;
+            insert(v);
+        }
+    }
+
+    /** Add the clause of LITERALS, none of which may mention the same
+     *  variable as another.  Any assignment left by solve is discarded. */
+    void addClause(int... literals) {
+        backtrack(0);
+        if (this.unsatisfiable) {
+            return;
+        }
+        int[] clause = new int[literals.length];
+        int size = 0;
+        for (int literal : literals) {
+            int l = literal > 0 ? 2 * (literal - 1) : 2 * (-literal - 1) + 1;
+            int value = truth(l);
+            if (value == 1) {
+                return;
+            } else if (value == UNASSIGNED) {
+                clause[size] = l;
+                size += 1;
+            }
+        }
+        if (size == 0) {
+            this.unsatisfiable = true;
+        } else if (size == 1) {
+            assign(clause[0], -1);
+        } else {
+            store(Arrays.copyOf(clause, size));
+        }
+    }
+
+    /** Return true iff the clauses added so far have a solution, which
+     *  value may then be asked about. */
+    boolean solve() {
+        if (this.unsatisfiable) {
+            return false;
+        }
+        backtrack(0);
+        int restart = 1;
+        int conflicts = 0;
+        while (true) {
+            int conflict = propagate();
+            if (conflict != -1) {
+                if (this.level == 0) {
+                    this.unsatisfiable = true;
+                    return false;
+                }
+                learn(conflict);
+                decay();
+                conflicts += 1;
+                if (conflicts >= RESTART_BASE * luby(restart)) {
+                    backtrack(0);
+                    restart += 1;
+                    conflicts = 0;
+                }
+            } else {
+                int v = nextDecision();
+                if (v == -1) {
+                    return true;
+                }
+                this.levelStarts[this.level] = this.trailSize;
+                this.level += 1;
+                assign(2 * v + (this.phases[v] == 1 ? 0 : 1), -1);
+            }
+        }
+    }
+
+    /** Return true iff VARIABLE is true in the solution found by the last
+     *  call to solve. */
+    boolean value(int variable) {
+        return this.values[variable - 1] == 1;
+    }
+
+    /** Return the value of internal literal L: 1, 0, or UNASSIGNED. */
+    private int truth(int l) {
+        int value = this.values[l >> 1];
+        return value == UNASSIGNED ? UNASSIGNED : value ^ (l & 1);
+    }
+
+    /** Make internal literal L true at the current level, because of
+     *  clause REASON, or -1 if it was decided. */
+    private void assign(int l, int reason) {
+        int v = l >> 1;
+        this.values[v] = 1 - (l & 1);
+        this.phases[v] = this.values[v];
+        this.levels[v] = this.level;
+        this.reasons[v] = reason;
+        this.trail[this.trailSize] = l;
+        this.trailSize += 1;
+    }
+
+    /** Add CLAUSE, which has at least two literals, and watch its first
+     *  two.  Return its index. */
+    private int store(int[] clause) {
+        if (this.clauseCount == this.clauses.length) {
+            this.clauses = Arrays.copyOf(this.clauses,
+                    2 * this.clauseCount);
+        }
+        this.clauses[this.clauseCount] = clause;
+        watch(clause[0], this.clauseCount);
+        watch(clause[1], this.clauseCount);
+        this.clauseCount += 1;
+        return this.clauseCount - 1;
+    }
+
+    /** Add clause C to the clauses watching internal literal L. */
+    private void watch(int l, int c) {
+        if (this.watchCounts[l] == this.watches[l].length) {
+            this.watches[l] = Arrays.copyOf(this.watches[l],
+                    2 * this.watchCounts[l]);
+        }
+        this.watches[l][this.watchCounts[l]] = c;
+        this.watchCounts[l] += 1;
+    }
+
+    /** Assign every literal implied by the literals on the trail.  Return
+     *  the index of a clause all of whose literals are false, or -1. */
+    private int propagate() {
+        while (this.propagated < this.trailSize) {
+            int falsified = this.trail[this.propagated] ^ 1;
+            this.propagated += 1;
+            int[] watching = this.watches[falsified];
+            int count = this.watchCounts[falsified];
+            int kept = 0;
+            for (int i = 0; i < count; i += 1) {
+                int c = watching[i];
+                int[] clause = this.clauses[c];
+                if (clause[0] == falsified) {
+                    clause[0] = clause[1];
+                    clause[1] = falsified;
+                }
+                if (truth(clause[0]) == 1) {
+                    watching[kept] = c;
+                    kept += 1;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < clause.length && !moved; k += 1) {
+                    if (truth(clause[k]) != 0) {
+                        clause[1] = clause[k];
+                        clause[k] = falsified;
+                        watch(clause[1], c);
+                        moved = true;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                watching[kept] = c;
+                kept += 1;
+                if (truth(clause[0]) == 0) {
+                    for (i += 1; i < count; i += 1) {
+                        watching[kept] = watching[i];
+                        kept += 1;
+                    }
+                    this.watchCounts[falsified] = kept;
+                    this.propagated = this.trailSize;
+                    return c;
+                }
+                assign(clause[0], c);
+            }
+            this.watchCounts[falsified] = kept;
+        }
+        return -1;
+    }
+
+    /** Learn a clause from the clause CONFLICT, jump back to the level at
+     *  which the learned clause implies a literal, and assign it. */
+    private void learn(int conflict) {
+        int[] learned = new int[this.level + 1];
+        int size = 1;
+        int pending = 0;
+        int l = -1;
+        int index = this.trailSize - 1;
+        int c = conflict;
+        do {
+            int[] clause = this.clauses[c];
+            for (int k = l == -1 ? 0 : 1; k < clause.length; k += 1) {
+                int v = clause[k] >> 1;
+                if (!this.seen[v] && this.levels[v] > 0) {
+                    this.seen[v] = true;
+                    bump(v);
+                    if (this.levels[v] == this.level) {
+                        pending += 1;
+                    } else {
+                        if (size == learned.length) {
+                            learned = Arrays.copyOf(learned, 2 * size);
+                        }
+                        learned[size] = clause[k];
+                        size += 1;
+                    }
+                }
+            }
+            while (!this.seen[this.trail[index] >> 1]) {
+                index -= 1;
+            }
+            l = this.trail[index];
+            index -= 1;
+            c = this.reasons[l >> 1];
+            this.seen[l >> 1] = false;
+            pending -= 1;
+        } while (pending > 0);
+        learned[0] = l ^ 1;
+        int jump = 0;
+        for (int k = 1; k < size; k += 1) {
+            this.seen[learned[k] >> 1] = false;
+            if (this.levels[learned[k] >> 1] > jump) {
+                jump = this.levels[learned[k] >> 1];
+                int swap = learned[1];
+                learned[1] = learned[k];
+                learned[k] = swap;
+            }
+        }
+        backtrack(jump);
+        if (size == 1) {
+            assign(learned[0], -1);
+        } else {
+            assign(learned[0], store(Arrays.copyOf(learned, size)));
+        }
+    }
+
+    /** Undo every assignment made above decision level LEVEL. */
+    private void backtrack(int level) {
+        if (this.level <= level) {
+            return;
+        }
+        int start = this.levelStarts[level];
+        while (this.trailSize > start) {
+            this.trailSize -= 1;
+            int v = this.trail[this.trailSize] >> 1;
+            this.values[v] = UNASSIGNED;
+            insert(v);
+        }
+        this.propagated = start;
+        this.level = level;
+    }
+
+    /** Return the unassigned variable to decide next, or -1 if every
+     *  variable is assigned. */
+    private int nextDecision() {
+        while (this.heapSize > 0) {
+            int v = removeFirst();
+            if (this.values[v] == UNASSIGNED) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    /** Return element I, counting from 1, of the Luby sequence 1, 1, 2,
+     *  1, 1, 2, 4, 1, .... */
+    private static int luby(int i) {
+        int k = 1;
+        while ((1 << k) - 1 < i) {
+            k += 1;
+        }
+        while (i != (1 << k) - 1) {
+            i -= (1 << (k - 1)) - 1;
+            k = 1;
+            while ((1 << k) - 1 < i) {
+                k += 1;
+            }
+        }
+        return 1 << (k - 1);
+    }
+
+    /** Raise the activity of variable V. */
+    private void bump(int v) {
+        this.activities[v] += this.increment;
+        if (this.activities[v] > ACTIVITY_LIMIT) {
+            for (int w = 0; w < this.variables; w += 1) {
+                this.activities[w] /= ACTIVITY_LIMIT;
+            }
+            this.increment /= ACTIVITY_LIMIT;
+        }
+        if (this.heapPositions[v] != -1) {
+            siftUp(this.heapPositions[v]);
+        }
+    }
+
+    /** Let every activity fade relative to the activities to come. */
+    private void decay() {
+        this.increment /= ACTIVITY_DECAY;
+    }
+
+    /** Add variable V to this.heap, unless it is already there. */
+    private void insert(int v) {
+        if (this.heapPositions[v] == -1) {
+            this.heap[this.heapSize] = v;
+            this.heapPositions[v] = this.heapSize;
+            this.heapSize += 1;
+            siftUp(this.heapSize - 1);
+        }
+    }
+
+    /** Remove and return the most active variable in this.heap. */
+    private int removeFirst() {
+        int first = this.heap[0];
+        this.heapPositions[first] = -1;
+        this.heapSize -= 1;
+        if (this.heapSize > 0) {
+            this.heap[0] = this.heap[this.heapSize];
+            this.heapPositions[this.heap[0]] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    /** Move the variable at position I of this.heap up to its place. */
+    private void siftUp(int i) {
+        int v = this.heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (this.activities[this.heap[parent]] >= this.activities[v]) {
+                break;
+            }
+            this.heap[i] = this.heap[parent];
+            this.heapPositions[this.heap[i]] = i;
+            i = parent;
+        }
+        this.heap[i] = v;
+        this.heapPositions[v] = i;
+    }
+
+    /** Move the variable at position I of this.heap down to its place. */
+    private void siftDown(int i) {
+        int v = this.heap[i];
+        while (2 * i + 1 < this.heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.heapSize && this.activities[this.heap[child
+                    + 1]] > this.activities[this.heap[child]]) {
+                child += 1;
+            }
+            if (this.activities[this.heap[child]] <= this.activities[v]) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            this.heapPositions[this.heap[i]] = i;
+            i = child;
+        }
+        this.heap[i] = v;
+        this.heapPositions[v] = i;
+    }
+}
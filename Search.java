@@ -0,0 +1,248 @@
+package puzzle;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A search for the solutions of a hypothetical, whose guesses are
+ *  explored in parallel.  A search reports whether its hypothetical has
+ *  0, 1, or at least 2 solutions, and stops exploring as soon as the
+ *  answer is settled.  Each search is given a budget of hypotheticals it
+ *  may try, which it shares evenly among its guesses so that the answer
+ *  never depends on the order in which guesses happen to be explored.
+ *  Near the top of the search, guesses are explored in separate tasks on
+ *  copies of their hypothetical; deeper down, each task explores its
+ *  guesses in place, rolling its hypothetical back after each one.
+ *  @author Tanner Wauchope */
+class Search extends RecursiveTask<Integer> {
+
+    /** The count reported by a search that found at least two solutions,
+     *  or that gave up before it could tell. */
+    static final int MANY = 2;
+
+    /** The number of guesses below which searches explore each of their
+     *  guesses in a separate task.  Deeper searches explore their guesses
+     *  one after another, within a single hypothetical. */
+    private static final int PARALLEL_DEPTH = 3;
+
+    /** If you don't explicitly specify serialVersionUID, a value is
+     * generated automatically - but that's brittle because it's compiler
+     * implementation dependent. */
+    private static final long serialVersionUID = 1L;
+
+    /** The search that made the guess leading to this one, or null. */
+    private final Search parent;
+
+    /** The hypothetical from which this search's guess is made. */
+    private final Solver base;
+
+    /** A [person, job, color] guess made in BASE, or null if this search
+     *  explores BASE itself. */
+    private final int[] guess;
+
+    /** The number of guesses made to reach this search's hypothetical. */
+    private final int depth;
+
+    /** The most guesses that may be made on top of one another. */
+    private final int maxDepth;
+
+    /** The number of hypotheticals this search may try. */
+    private final int budget;
+
+    /** True iff this search only counts which of its guesses have
+     *  solutions, rather than how many solutions there are. */
+    private final boolean surveying;
+
+    /** The number of solutions found so far below this search, or, if
+     *  this search is surveying, the number of its guesses found so far
+     *  to have solutions. */
+    private final AtomicInteger found;
+
+    /** The hypothetical this search explores. */
+    private Solver node;
+
+    /** The searches of the guesses made in this search's hypothetical,
+     *  in the order of the guesses, or null if none were made. */
+    private ArrayList<Search> children;
+
+    /** This search's only solution, when it has exactly one. */
+    private Solver solution;
+
+    /** A search of NODE that may make DEPTH to MAXDEPTH guesses and try
+     *  BUDGET hypotheticals.  If SURVEYING, the search only learns which of
+     *  NODE's guesses have solutions. */
+    private Search(Solver node, int depth, int maxDepth, int budget,
+            boolean surveying) {
+        this.parent = null;
+        this.base = node;
+        this.guess = null;
+        this.depth = depth;
+        this.maxDepth = maxDepth;
+        this.budget = budget;
+        this.surveying = surveying;
+        this.found = new AtomicInteger();
+    }
+
+    /** A search of the hypothetical in which GUESS is made in the
+     *  hypothetical of PARENT, which may try BUDGET hypotheticals. */
+    private Search(Search parent, int[] guess, int budget) {
+        this.parent = parent;
+        this.base = parent.node;
+        this.guess = guess;
+        this.depth = parent.depth + 1;
+        this.maxDepth = parent.maxDepth;
+        this.budget = budget;
+        this.surveying = false;
+        this.found = new AtomicInteger();
+    }
+
+    /**
+     * @param node  a consistent hypothetical that is not yet solved
+     * @param maxDepth  the most guesses that may be made on top of one
+     *                  another
+     * @param maxNodes  the most hypotheticals that may be tried
+     * @return  null if NODE has no solutions.  Otherwise, NODE's only
+     *          solution if it has just one, or else the descendant of NODE
+     *          reached by following the one guess that has solutions for
+     *          as long as there is only one such guess.
+     */
+    static Solver narrow(Solver node, int maxDepth, int maxNodes) {
+        Solver current = node;
+        int depth = 0;
+        int budget = maxNodes;
+        while (depth < maxDepth) {
+            Search survey = new Search(current, depth, maxDepth, budget,
+                    true);
+            ForkJoinPool.commonPool().invoke(survey);
+            if (survey.children == null) {
+                return current;
+            }
+            Search survivor = null;
+            for (Search child : survey.children) {
+                if (child.join() > 0) {
+                    if (survivor != null) {
+                        return current;
+                    }
+                    survivor = child;
+                }
+            }
+            if (survivor == null) {
+                return null;
+            } else if (survivor.join() == 1) {
+                return survivor.solution;
+            }
+            current = survivor.node;
+            depth += 1;
+            budget = survivor.budget;
+        }
+        return current;
+    }
+
+    @Override
+    protected Integer compute() {
+        if (this.guess == null) {
+            this.node = this.base;
+        } else if (cancelled()) {
+            return MANY;
+        } else {
+            this.node = Solver.branch(this.base, this.guess);
+        }
+        if (this.node.impossible()) {
+            return 0;
+        } else if (this.node.solved()) {
+            this.solution = this.node;
+            report();
+            return 1;
+        }
+        ArrayList<int[]> guesses = this.node.findGuesses(
+                this.node.findBestPersonForGuessing());
+        if (this.depth >= this.maxDepth || this.budget < guesses.size()) {
+            return MANY;
+        }
+        if (!this.surveying && this.depth >= PARALLEL_DEPTH) {
+            return searchInPlace(this.depth, this.budget);
+        }
+        int share = (this.budget - guesses.size()) / guesses.size();
+        int extra = (this.budget - guesses.size()) % guesses.size();
+        this.children = new ArrayList<Search>();
+        for (int i = 0; i < guesses.size(); i += 1) {
+            this.children.add(new Search(this, guesses.get(i),
+                    i < extra ? share + 1 : share));
+        }
+        invokeAll(this.children);
+        int result = 0;
+        for (Search child : this.children) {
+            int count = child.join();
+            if (count == 1 && result == 0) {
+                this.solution = child.solution;
+            }
+            result = Math.min(MANY, result + count);
+        }
+        return result;
+    }
+
+    /**
+     * @param depth  the number of guesses made to reach this.node
+     * @param budget  the number of hypotheticals that may be tried below
+     *                this.node
+     * @return  the number of solutions of this.node, as compute counts
+     *          them, found by guessing within this.node itself and rolling
+     *          each guess back when it has been explored
+     */
+    private int searchInPlace(int depth, int budget) {
+        if (cancelled()) {
+            return MANY;
+        } else if (this.node.impossible()) {
+            return 0;
+        } else if (this.node.solved()) {
+            if (this.solution == null) {
+                this.solution = Solver.cloneSolver(this.node);
+            }
+            report();
+            return 1;
+        }
+        ArrayList<int[]> guesses = this.node.findGuesses(
+                this.node.findBestPersonForGuessing());
+        if (depth >= this.maxDepth || budget < guesses.size()) {
+            return MANY;
+        }
+        int share = (budget - guesses.size()) / guesses.size();
+        int extra = (budget - guesses.size()) % guesses.size();
+        int result = 0;
+        for (int i = 0; i < guesses.size() && result < MANY; i += 1) {
+            Stats.count(Stats.BRANCHES, 1);
+            this.node.checkpoint();
+            this.node.assume(guesses.get(i));
+            result += searchInPlace(depth + 1,
+                    i < extra ? share + 1 : share);
+            this.node.rollback();
+        }
+        return Math.min(MANY, result);
+    }
+
+    /** Record that a solution has been found by this search. */
+    private void report() {
+        int count = this.found.incrementAndGet();
+        for (Search s = this.parent; s != null; s = s.parent) {
+            if (s.surveying) {
+                if (count == 1) {
+                    s.found.incrementAndGet();
+                }
+                return;
+            }
+            count = s.found.incrementAndGet();
+        }
+    }
+
+    /** Return true iff the answer of this search or of some search that
+     *  led to it is already settled, so this search need not continue. */
+    private boolean cancelled() {
+        for (Search s = this; s != null; s = s.parent) {
+            if (s.found.get() >= MANY) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,195 @@
+package puzzle;
+
+/** A sentence of a puzzle: its type, the ids of the entities it names,
+ *  and where its text lies in the text of the puzzle's sentences.  The
+ *  id of an entity is its position among the entities of its kind, in the
+ *  order the puzzle's assertions first name them.
+ *  @author Tanner Wauchope */
+class Sentence {
+
+    /** The kind of entity that is a person. */
+    static final int PERSON = 0;
+
+    /** The kind of entity that is a job. */
+    static final int JOB = 1;
+
+    /** The kind of entity that is a color. */
+    static final int COLOR = 2;
+
+    /** The number of kinds of entity. */
+    static final int KINDS = 3;
+
+    /** The type of each assertion and question, with its form: the words
+     *  of the sentence, without its final period or question mark, in
+     *  which each blank is filled by the name of an entity.  A person's
+     *  name is capitalized, and a job's or color's is lowercase. */
+    enum Type {
+        /** An assertion that a person lives in a house of some color. */
+        PERSON_WITH_COLOR('.', "<person> lives in the <color> house"),
+        /** An assertion that a job's holder lives in a house of some
+         *  color. */
+        JOB_WITH_COLOR('.', "The <job> lives in the <color> house"),
+        /** An assertion that a person does not live in a house of some
+         *  color. */
+        PERSON_NOT_WITH_COLOR('.',
+                "<person> does not live in the <color> house"),
+        /** An assertion that a job's holder does not live in a house of
+         *  some color. */
+        JOB_NOT_WITH_COLOR('.',
+                "The <job> does not live in the <color> house"),
+        /** An assertion that a person holds a job. */
+        PERSON_WITH_JOB('.', "<person> is the <job>"),
+        /** An assertion that a person does not hold a job. */
+        PERSON_NOT_WITH_JOB('.', "<person> is not the <job>"),
+        /** An assertion that a person exists. */
+        PERSON_EXISTS('.', "<person> lives around here"),
+        /** An assertion that a job exists. */
+        JOB_EXISTS('.', "The <job> lives around here"),
+        /** An assertion that a color of house exists. */
+        COLOR_EXISTS('.', "There is a <color> house"),
+        /** A question about everything known of a person. */
+        ABOUT_PERSON('?', "What do you know about <person>"),
+        /** A question about everything known of a job. */
+        ABOUT_JOB('?', "What do you know about the <job>"),
+        /** A question about everything known of a color. */
+        ABOUT_COLOR('?', "What do you know about the <color> house"),
+        /** A question of who holds a job. */
+        PERSON_OF_JOB('?', "Who is the <job>"),
+        /** A question of who lives in a house of some color. */
+        PERSON_OF_COLOR('?', "Who lives in the <color> house"),
+        /** A question of what job a person holds. */
+        JOB_OF_PERSON('?', "What does <person> do"),
+        /** A question of what job the occupant of a house holds. */
+        JOB_OF_COLOR('?', "What does the occupant of the <color> house do"),
+        /** A question of where a person lives. */
+        COLOR_OF_PERSON('?', "Where does <person> live"),
+        /** A question of where a job's holder lives. */
+        COLOR_OF_JOB('?', "Where does the <job> live");
+
+        /** The period or question mark that ends a sentence of this
+         *  type. */
+        private final char mark;
+
+        /** The words of my form, where a blank is "<person>", "<job>" or
+         *  "<color>". */
+        private final String[] words;
+
+        /** The kind of entity that fills each word of my form, or -1 for
+         *  a word that is not a blank. */
+        private final int[] blanks;
+
+        /** The kinds of the entities named by a sentence of this type, in
+         *  order. */
+        private final int[] kinds;
+
+        /** A type of sentence ending in MARK, with the form FORM. */
+        Type(char mark, String form) {
+            this.mark = mark;
+            this.words = form.split(" ");
+            this.blanks = new int[this.words.length];
+            int entities = 0;
+            for (int k = 0; k < this.words.length; k += 1) {
+                this.blanks[k] = this.words[k].equals("<person>") ? PERSON
+                        : this.words[k].equals("<job>") ? JOB
+                        : this.words[k].equals("<color>") ? COLOR : -1;
+                if (this.blanks[k] != -1) {
+                    entities += 1;
+                }
+            }
+            this.kinds = new int[entities];
+            entities = 0;
+            for (int k = 0; k < this.words.length; k += 1) {
+                if (this.blanks[k] != -1) {
+                    this.kinds[entities] = this.blanks[k];
+                    entities += 1;
+                }
+            }
+        }
+
+        /** Return true iff sentences of this type are questions. */
+        boolean isQuestion() {
+            return this.mark == '?';
+        }
+
+        /** Return the period or question mark ending sentences of this
+         *  type. */
+        char mark() {
+            return this.mark;
+        }
+
+        /** Return the number of words in my form. */
+        int length() {
+            return this.words.length;
+        }
+
+        /** Return word K of my form. */
+        String word(int k) {
+            return this.words[k];
+        }
+
+        /** Return the kind of entity filling word K of my form, or -1 if
+         *  it is not a blank. */
+        int blank(int k) {
+            return this.blanks[k];
+        }
+
+        /** Return the number of entities a sentence of this type names. */
+        int entities() {
+            return this.kinds.length;
+        }
+
+        /** Return the kind of entity number I named by a sentence of this
+         *  type. */
+        int kind(int i) {
+            return this.kinds[i];
+        }
+    }
+
+    /** My type. */
+    private final Type type;
+
+    /** The id of the first entity I name. */
+    private final int first;
+
+    /** The id of the second entity I name, or -1 if I name only one. */
+    private final int second;
+
+    /** The offset at which my text starts in the text of the puzzle's
+     *  sentences. */
+    private final int start;
+
+    /** The offset at which my text ends in the text of the puzzle's
+     *  sentences. */
+    private final int end;
+
+    /** A sentence of type TYPE naming the entities FIRST and SECOND (or -1
+     *  if it names only one), whose text lies between START and END in
+     *  the text of the puzzle's sentences. */
+    Sentence(Type type, int first, int second, int start, int end) {
+        this.type = type;
+        this.first = first;
+        this.second = second;
+        this.start = start;
+        this.end = end;
+    }
+
+    /** Return my type. */
+    Type type() {
+        return this.type;
+    }
+
+    /** Return the id of entity number I that I name (numbering from 0). */
+    int entity(int i) {
+        return i == 0 ? this.first : this.second;
+    }
+
+    /** Return the offset at which my text starts. */
+    int start() {
+        return this.start;
+    }
+
+    /** Return the offset at which my text ends. */
+    int end() {
+        return this.end;
+    }
+}
@@ -1,66 +1,562 @@
 package puzzle;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.Reader;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /** The Puzzle Solver.
  * @author Tanner Wauchope
  */
 public class Solve {
 
-    /** Solve the puzzle given in ARGS[0], if given.  Otherwise, print
-     *  a help message. */
+    /** The number of solutions at which --count stops counting, unless
+     *  told otherwise. */
+    private static final int DEFAULT_COUNT_CAP = 2;
+
+    /** The number of puzzles, per worker, that may be solved ahead of the
+     *  puzzle whose result is printed next. */
+    private static final int PUZZLES_PER_WORKER = 4;
+
+    /** The prefix of a --serve address that names a Unix domain socket. */
+    private static final String UNIX_PREFIX = "unix:";
+
+    /** The characters that make an argument a glob rather than a file. */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /** The number of megabytes the answers kept by --cache may take up,
+     *  unless told otherwise. */
+    private static final int DEFAULT_CACHE_MEGABYTES = 64;
+
+    /** The answers kept from earlier runs, which solve consults before
+     *  solving a puzzle, or null if there are none. */
+    private static ResultCache cache;
+
+    /** Solve the puzzles in the files named by ARGS, if given.  Otherwise,
+     *  print a help message.  An argument may name a file, a directory,
+     *  all of whose files are solved, or a glob such as puzzles/*.txt.
+     *  When there is more than one puzzle, they are solved concurrently by
+     *  --jobs=N workers, and each result is printed under the name of its
+     *  file, in the order the files were given; a puzzle with an error
+     *  gets the error as its result.  The argument - reads puzzles from
+     *  the standard input instead, separated by lines of --delimiter=TEXT,
+     *  and prints each result, followed by the same line, as soon as its
+     *  puzzle has arrived and been solved.  With --serve=PORT, or
+     *  --serve=unix:PATH, puzzles are read the same way from each client
+     *  that connects to a local socket, and its results are sent back to
+     *  it; clients may stay connected as long as they like, and share the
+     *  --jobs=N workers that solve their puzzles.  With the option --count, or
+     *  --count=CAP, print whether each puzzle has no solutions, one, or
+     *  more, counting up to CAP of them, instead of answering its
+     *  questions.  With --cache=DIR, the answers to each puzzle are kept
+     *  in DIR, and a puzzle making the same assertions as one solved
+     *  before, in any order and perhaps about people, jobs, and colors
+     *  named otherwise, is answered without being solved again;
+     *  the answers least recently used are deleted once they take up
+     *  more than --cache-size=MB megabytes.  With --stats, the work done
+     *  by the solver is counted and timed, and printed on the standard
+     *  error when the program ends; the counts can also be read through
+     *  JMX, as can those of a program serving clients, which counts once
+     *  the Enabled attribute of its MBean is set. */
     public static void main(String[] args) {
         if (args.length == 0) {
             usage();
             return;
         }
 
-        if (args.length > 1) {
-            System.err.println("Error: too many arguments");
+        int countCap = 0;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String delimiter = PuzzleStream.DEFAULT_DELIMITER;
+        String address = null;
+        String cacheDirectory = null;
+        int cacheMegabytes = DEFAULT_CACHE_MEGABYTES;
+        boolean stats = false;
+        ArrayList<String> names = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.equals("--count")) {
+                countCap = DEFAULT_COUNT_CAP;
+            } else if (arg.startsWith("--count=")) {
+                countCap = option(arg, "--count=", 2);
+            } else if (arg.startsWith("--jobs=")) {
+                jobs = option(arg, "--jobs=", 1);
+            } else if (arg.startsWith("--serve=")) {
+                address = arg.substring("--serve=".length());
+            } else if (arg.startsWith("--delimiter=")) {
+                delimiter = arg.substring("--delimiter=".length());
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--cache-size=")) {
+                cacheMegabytes = option(arg, "--cache-size=", 1);
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else {
+                names.add(arg);
+            }
+        }
+        if (cacheDirectory != null) {
+            try {
+                cache = new ResultCache(new File(cacheDirectory).toPath(),
+                        (long) cacheMegabytes << 20);
+            } catch (IOException e) {
+                System.err.println("Error: cannot keep answers in "
+                        + cacheDirectory);
+                System.exit(1);
+            }
+        }
+        if (stats) {
+            Stats.enable(true);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    System.err.print(Stats.report());
+                }
+            });
+        }
+        if (stats || address != null) {
+            Stats.register();
+        }
+        if (address != null) {
+            if (!names.isEmpty()) {
+                System.err.println("Error: --serve takes no puzzle files");
+                System.exit(1);
+            }
+            serve(address, delimiter, countCap, jobs);
+            return;
+        }
+        if (names.isEmpty()) {
+            System.err.println("Error: no puzzle file given");
             usage();
             System.exit(1);
         }
 
-        File inputFileName = new File(args[0]);
-        Reader input;
+        if (names.contains("-")) {
+            if (names.size() > 1) {
+                System.err.println("Error: - cannot be mixed with files");
+                System.exit(1);
+            }
+            boolean succeeded;
+            try {
+                succeeded = solveStream(new InputStreamReader(System.in),
+                        new OutputStreamWriter(System.out), delimiter,
+                        countCap);
+            } catch (IOException e) {
+                System.err.println("Error: could not read the standard "
+                        + "input");
+                succeeded = false;
+            }
+            if (!succeeded) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        ArrayList<File> files = new ArrayList<File>();
+        for (String name : names) {
+            expand(name, files);
+        }
+        if (names.size() == 1 && files.size() == 1
+                && files.get(0).getPath().equals(names.get(0))) {
+            solveOne(files.get(0), countCap);
+        } else if (!solveAll(files, countCap, jobs)) {
+            System.exit(1);
+        }
+    }
+
+    /** Solve the puzzle in FILE, printing its result, or printing its
+     *  error and exiting.  With a COUNTCAP above 0, print how many
+     *  solutions it has instead. */
+    private static void solveOne(File file, int countCap) {
+        Parser puzzle;
 
         try {
-            input = new FileReader(inputFileName);
-        } catch (FileNotFoundException e) {
-            System.err.printf("Error: file %s not found", inputFileName);
+            puzzle = Parser.parse(file.toPath());
+        } catch (IOException e) {
+            System.err.printf("Error: file %s not found", file);
             System.exit(1);
             return;
+        } catch (PuzzleException e) {
+            System.err.printf("Error: " + e.getMessage() + "\n");
+            System.exit(1);
+            return;
+        }
+
+        try {
+            System.out.print(solve(puzzle, countCap));
+        } catch (PuzzleException e) {
+            System.err.printf("Error: " + e.getMessage() + "\n");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param files  the files of the puzzles to solve
+     * @param countCap  the number of solutions at which to stop counting,
+     *                  or 0 to answer the puzzles' questions instead
+     * @param jobs  the number of puzzles to solve at once
+     * @return  true iff every puzzle was solved without an error.  The
+     *          result of each puzzle is printed under the name of its file,
+     *          in the order of FILES, as soon as it and the results before
+     *          it are ready.
+     */
+    private static boolean solveAll(ArrayList<File> files,
+            final int countCap, int jobs) {
+        ExecutorService workers = Executors.newFixedThreadPool(jobs);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        boolean succeeded = true;
+        int submitted = 0;
+        try {
+            for (int i = 0; i < files.size(); i += 1) {
+                while (submitted < files.size()
+                        && submitted - i < PUZZLES_PER_WORKER * jobs) {
+                    final File file = files.get(submitted);
+                    pending.add(workers.submit(new Callable<String>() {
+                        @Override
+                        public String call() {
+                            return solveFile(file, countCap);
+                        }
+                    }));
+                    submitted += 1;
+                }
+                String result;
+                try {
+                    result = pending.remove().get();
+                } catch (ExecutionException e) {
+                    result = "Error: " + e.getCause() + "\n";
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                if (result.startsWith("Error: ")) {
+                    succeeded = false;
+                }
+                if (i > 0) {
+                    System.out.println();
+                }
+                System.out.println("==> " + files.get(i) + " <==");
+                System.out.print(result);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return succeeded;
+    }
+
+    /**
+     * @param input  puzzles separated by lines of DELIMITER
+     * @param output  where the results of the puzzles are written
+     * @param delimiter  the line that separates puzzles
+     * @param countCap  the number of solutions at which to stop counting,
+     *                  or 0 to answer the puzzles' questions instead
+     * @return  true iff every puzzle was solved without an error.  Each
+     *          puzzle is parsed as it arrives, and its result is written,
+     *          followed by a line of DELIMITER, as soon as it is solved, so
+     *          only one puzzle is held at a time.
+     */
+    static boolean solveStream(Reader input, Writer output,
+            String delimiter, int countCap) throws IOException {
+        return solveStream(input, output, delimiter, countCap, null);
+    }
+
+    /** As solveStream(INPUT, OUTPUT, DELIMITER, COUNTCAP), but each puzzle
+     *  is parsed on this thread and solved by one of WORKERS, unless
+     *  WORKERS is null, while this thread waits for its result. */
+    private static boolean solveStream(Reader input, Writer output,
+            String delimiter, int countCap, ExecutorService workers)
+            throws IOException {
+        PuzzleStream puzzles = new PuzzleStream(input, delimiter);
+        boolean succeeded = true;
+        for (Reader puzzle = puzzles.next(); puzzle != null;
+                puzzle = puzzles.next()) {
+            String result;
+            try {
+                result = solve(Parser.parse(puzzle), countCap, workers);
+            } catch (PuzzleException e) {
+                result = "Error: " + e.getMessage() + "\n";
+                succeeded = false;
+            }
+            output.write(result);
+            output.write(delimiter + "\n");
+            output.flush();
+        }
+        return succeeded;
+    }
+
+    /** Return the result of solving PUZZLE, as solve(Reader, int) returns
+     *  it, solved by one of WORKERS, or by this thread if WORKERS is null.
+     *  COUNTCAP is as for solve. */
+    private static String solve(final Parser puzzle, final int countCap,
+            ExecutorService workers) throws IOException {
+        if (workers == null) {
+            return solve(puzzle, countCap);
         }
+        try {
+            return workers.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return solve(puzzle, countCap);
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while solving");
+        }
+    }
 
+    /** Serve clients at ADDRESS, which is either a TCP port on the
+     *  loopback interface or unix: followed by the path of a Unix domain
+     *  socket, until killed, as serve(ServerSocketChannel, String, int,
+     *  int) does with DELIMITER, COUNTCAP, and JOBS. */
+    private static void serve(String address, String delimiter,
+            int countCap, int jobs) {
+        ServerSocketChannel server;
         try {
-            Parser puzzle = Parser.parse(input);
-            Solver solution = new Solver();
-            solution = puzzle.inform(solution);
-            for (int i = 0; i < puzzle.numAssertions(); i += 1) {
-                System.out.println((i + 1) + ". " + puzzle.getAssertion(i));
-            }
-            System.out.println();
-            if (solution.impossible()) {
-                System.out.println("That's impossible.");
+            if (address.startsWith(UNIX_PREFIX)) {
+                File path = new File(address.substring(UNIX_PREFIX.length()));
+                server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                server.bind(UnixDomainSocketAddress.of(path.toPath()));
+                path.deleteOnExit();
             } else {
-                for (int i = 0; i < puzzle.numQuestions(); i += 1) {
-                    System.out.println("Q: " + puzzle.getQuestion(i));
-                    System.out.println("A: " + puzzle.getAnswer(solution, i));
+                server = ServerSocketChannel.open();
+                server.bind(new InetSocketAddress(
+                        InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(address)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error: cannot listen at " + address);
+            System.exit(1);
+            return;
+        }
+        serve(server, delimiter, countCap, jobs);
+    }
+
+    /** Serve the clients that connect to SERVER until it is closed.  Each
+     *  client has a thread of its own, so that a client that keeps its
+     *  connection open while sending nothing holds up no one else, and
+     *  may send any number of puzzles, separated by lines of DELIMITER;
+     *  each result is sent back as solveStream writes it.  The puzzles of
+     *  every client are solved by JOBS workers, which they share.
+     *  COUNTCAP is as for solveStream. */
+    static void serve(ServerSocketChannel server, final String delimiter,
+            final int countCap, int jobs) {
+        final ExecutorService workers = Executors.newFixedThreadPool(jobs);
+        ExecutorService clients = Executors.newCachedThreadPool();
+        try {
+            while (true) {
+                final SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Error: " + e.getMessage());
+                    continue;
                 }
+                clients.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serveClient(client, delimiter, countCap, workers);
+                    }
+                });
             }
+        } finally {
+            clients.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    /** Solve the puzzles sent by CLIENT on WORKERS, and send back their
+     *  results, as solveStream does with DELIMITER and COUNTCAP.  Close
+     *  CLIENT once it has sent all its puzzles. */
+    private static void serveClient(SocketChannel client, String delimiter,
+            int countCap, ExecutorService workers) {
+        try (SocketChannel channel = client) {
+            solveStream(Channels.newReader(channel, UTF_8),
+                    Channels.newWriter(channel, UTF_8), delimiter, countCap,
+                    workers);
+        } catch (IOException e) {
+            System.err.println("Error: lost a client: " + e.getMessage());
+        }
+    }
+
+    /** Return the result of solving the puzzle in FILE, as solve would
+     *  print it, or an error message if it cannot be solved.  COUNTCAP is
+     *  as for solve. */
+    private static String solveFile(File file, int countCap) {
+        try {
+            return solve(Parser.parse(file.toPath()), countCap);
+        } catch (IOException e) {
+            return "Error: file " + file + " not found\n";
         } catch (PuzzleException e) {
-            System.err.printf("Error: " + e.getMessage() + "\n");
+            return "Error: " + e.getMessage() + "\n";
+        }
+    }
+
+    /**
+     * @param input  the text of a puzzle
+     * @param countCap  the number of solutions at which to stop counting,
+     *                  or 0 to answer the puzzle's questions instead
+     * @return  the puzzle's numbered assertions followed by its questions
+     *          and their answers, or else whether it has no solutions, one,
+     *          or more, one line to each
+     */
+    static String solve(Reader input, int countCap) {
+        return solve(Parser.parse(input), countCap);
+    }
+
+    /** Return the result of solving PUZZLE, as solve(Reader, int) returns
+     *  it.  COUNTCAP is as for solve. */
+    private static String solve(Parser puzzle, int countCap) {
+        StringBuilder result = new StringBuilder();
+        if (countCap > 0) {
+            Solver solver = puzzle.propagate(new Solver());
+            result.append(classify(solver.countSolutions(countCap),
+                    countCap)).append('\n');
+            return result.toString();
+        }
+        Canonical form = cache == null ? null : puzzle.canonical();
+        Answers answers = cache == null ? null : cache.get(puzzle, form);
+        if (answers == null) {
+            Solver solver = puzzle.inform(new Solver());
+            long start = Stats.start();
+            answers = solver.answers();
+            Stats.time(Stats.ANSWER, start);
+            if (cache != null) {
+                cache.put(form, answers);
+            }
+        }
+        for (int i = 0; i < puzzle.numAssertions(); i += 1) {
+            result.append(i + 1).append(". ").append(puzzle.getAssertion(i))
+                    .append('\n');
+        }
+        result.append('\n');
+        if (answers.impossible()) {
+            result.append("That's impossible.\n");
+        } else {
+            long start = Stats.start();
+            for (int i = 0; i < puzzle.numQuestions(); i += 1) {
+                result.append("Q: ").append(puzzle.getQuestion(i))
+                        .append('\n');
+                result.append("A: ").append(puzzle.getAnswer(answers, i))
+                        .append('\n');
+            }
+            Stats.time(Stats.ANSWER, start);
+        }
+        return result.toString();
+    }
+
+    /** Add the files named by NAME to FILES.  NAME may name a file, a
+     *  directory, whose files are added in order of their paths, or a
+     *  glob, whose matches are added in the same order. */
+    private static void expand(String name, ArrayList<File> files) {
+        int glob = -1;
+        for (int i = 0; i < name.length() && glob == -1; i += 1) {
+            if (GLOB_CHARACTERS.indexOf(name.charAt(i)) != -1) {
+                glob = i;
+            }
+        }
+        if (glob == -1) {
+            File file = new File(name);
+            if (file.isDirectory()) {
+                collect(file, null, files);
+            } else {
+                files.add(file);
+            }
+            return;
+        }
+        int slash = name.lastIndexOf(File.separatorChar, glob);
+        File base = new File(slash == -1 ? "." : name.substring(0, slash + 1));
+        String pattern = slash == -1 ? "." + File.separator + name : name;
+        collect(base, FileSystems.getDefault().getPathMatcher(
+                "glob:" + pattern), files);
+    }
+
+    /** Add FILE to FILES if it is a file that MATCHER, if any, matches,
+     *  or else add the files within FILE, if it is a directory. */
+    private static void collect(File file, PathMatcher matcher,
+            ArrayList<File> files) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            if (matcher == null || matcher.matches(file.toPath())) {
+                files.add(file);
+            }
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            collect(child, matcher, files);
+        }
+    }
+
+    /** Return the number given by ARG, an option that starts with NAME,
+     *  after checking that it is at least MIN. */
+    private static int option(String arg, String name, int min) {
+        int result;
+        try {
+            result = Integer.parseInt(arg.substring(name.length()));
+        } catch (NumberFormatException e) {
+            result = min - 1;
+        }
+        if (result < min) {
+            System.err.println("Error: " + name.substring(0, name.length() - 1)
+                    + " needs a number of at least " + min);
             System.exit(1);
         }
+        return result;
+    }
+
+    /** Return a description of a puzzle found to have COUNT solutions,
+     *  when counting stops at CAP. */
+    private static String classify(int count, int cap) {
+        if (count == 0) {
+            return "impossible";
+        } else if (count == 1) {
+            return "unique";
+        } else if (count < cap) {
+            return "under-constrained: " + count + " solutions";
+        }
+        return "under-constrained: at least " + count + " solutions";
     }
 
     /** Print usage message. */
     private static void usage() {
         System.out.println(
                 "This program can solve logic puzzles.\n"
+                + "Usage: java puzzle.Solve [--count[=CAP]] [--jobs=N] "
+                + "FILE|DIR|GLOB...\n"
+                + "   or: java puzzle.Solve [--count[=CAP]] "
+                + "[--delimiter=TEXT] -\n"
+                + "   or: java puzzle.Solve [--count[=CAP]] "
+                + "[--delimiter=TEXT] [--jobs=N] --serve=PORT|unix:PATH\n"
+                + "Any of these may also be given --cache=DIR "
+                + "[--cache-size=MB] and --stats.\n\n"
                 + "Try it out on a puzzle formatted like any of these:\n\n"
                 + "Sue lives around here. There is a brown house.\n"
                 + "The professor lives around here.\n"
@@ -84,4 +580,3 @@ public class Solve {
                 + "What do you know about Mary?");
     }
 }
-
@@ -1,7 +1,26 @@
 package puzzle;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.*;
 
 import org.junit.Test;
@@ -11,6 +30,20 @@ import org.junit.Test;
  */
 public class SolveTest {
 
+    /** A puzzle with one person, job, and color is solved by making
+     *  inferences alone, though no disassociation narrows it down. */
+    @Test public void singleEntitySolving() {
+        ParseTest.setUp("Joe lives around here.",
+                "The plumber lives around here.", "There is a red house.",
+                "What do you know about Joe?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        Solver s = new Solver();
+        s.setParameters(p.getPeople(), p.getJobs(), p.getColors());
+        s.makeInferences();
+        assertEquals("wrong number of associations", 3,
+                s.getAssociations().size());
+    }
+
     /** basic test case */
     @Test public void basicSolving() {
         ParseTest.setUp("Joe is not the plumber.",
@@ -60,4 +93,492 @@ public class SolveTest {
         }
     }
 
+    /** A puzzle that needs more than one level of guessing. */
+    @Test public void deepSolving() {
+        Parser p = deepPuzzle();
+        assertDeepSolved(p, p.inform(new Solver()));
+    }
+
+    /** The exact cover engine agrees with guessing on a puzzle with one
+     *  solution, and finds none in an impossible one. */
+    @Test public void exactCoverSolving() {
+        Parser p = deepPuzzle();
+        Solver s = new Solver();
+        s.setEngine(Solver.EXACT_COVER);
+        assertDeepSolved(p, p.inform(s));
+
+        ParseTest.setUp("Ann is not the cook.", "Bob is not the cook.",
+                "Cal lives in the red house.", "The cook lives around here.",
+                "The cook does not live in the red house.",
+                "What do you know about Ann?");
+        p = Parser.parse(ParseTest.getReader());
+        s = new Solver();
+        s.setEngine(Solver.EXACT_COVER);
+        s = p.inform(s);
+        assertTrue("nobody left to cook", s.impossible());
+    }
+
+    /** The satisfiability engine solves a puzzle with one solution, and
+     *  leaves a puzzle with several solutions unsolved. */
+    @Test public void satisfiabilitySolving() {
+        Parser p = deepPuzzle();
+        Solver s = new Solver();
+        s.setEngine(Solver.SATISFIABILITY);
+        assertDeepSolved(p, p.inform(s));
+
+        ParseTest.setUp("Joe is the plumber. Tom lives around here.",
+                "Who is the plumber? Where does Joe live?");
+        p = Parser.parse(ParseTest.getReader());
+        s = new Solver();
+        s.setEngine(Solver.SATISFIABILITY);
+        s = p.inform(s);
+        assertFalse("should be possible", s.impossible());
+        assertEquals("wrong first answer", "Joe is the plumber.",
+                p.getAnswer(s, 0));
+        assertEquals("wrong second answer", "I don't know.",
+                p.getAnswer(s, 1));
+    }
+
+    /** Return the puzzle, with one solution, that needs more than one
+     *  level of guessing, asking about each of its people. */
+    private static Parser deepPuzzle() {
+        ParseTest.setUp("Carl lives around here. Hank lives around here.",
+                "Erin lives around here. Dana lives around here.",
+                "The cook lives around here. The pilot lives around here.",
+                "The baker lives around here.",
+                "The tailor lives around here.",
+                "There is a gray house. There is a tan house.",
+                "There is a blue house. There is a teal house.",
+                "The tailor does not live in the tan house.",
+                "Dana does not live in the blue house.",
+                "Dana is not the baker.",
+                "The baker does not live in the tan house.",
+                "The cook does not live in the teal house.",
+                "Dana is not the cook.",
+                "The cook does not live in the blue house.",
+                "Hank does not live in the blue house.",
+                "Carl does not live in the tan house.",
+                "Erin does not live in the tan house.",
+                "Hank is not the cook.",
+                "Erin does not live in the gray house.",
+                "Hank does not live in the teal house.",
+                "What do you know about Carl? What do you know about Hank?",
+                "What do you know about Erin? What do you know about Dana?");
+        return Parser.parse(ParseTest.getReader());
+    }
+
+    /** Assert that S, informed of P, the puzzle of deepPuzzle, has found
+     *  its solution. */
+    private static void assertDeepSolved(Parser p, Solver s) {
+        assertFalse("should be possible", s.impossible());
+        assertEquals("wrong first answer",
+                "Carl is the cook and lives in the gray house.",
+                p.getAnswer(s, 0));
+        assertEquals("wrong second answer",
+                "Hank is the pilot and lives in the tan house.",
+                p.getAnswer(s, 1));
+        assertEquals("wrong third answer",
+                "Erin is the baker and lives in the blue house.",
+                p.getAnswer(s, 2));
+        assertEquals("wrong fourth answer",
+                "Dana is the tailor and lives in the teal house.",
+                p.getAnswer(s, 3));
+    }
+
+    /** Solutions are counted up to a cap, by either counting engine. */
+    @Test public void countingSolutions() {
+        ParseTest.setUp("Joe is the plumber. Tom lives around here.",
+                "Amy lives around here.",
+                "What do you know about Joe?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        Solver s = p.propagate(new Solver());
+        assertEquals("two jobs and three colors left", 12,
+                s.countSolutions(100));
+        assertEquals("capped count", 5, s.countSolutions(5));
+        s = new Solver();
+        s.setEngine(Solver.SATISFIABILITY);
+        p.propagate(s);
+        assertEquals("two jobs and three colors left", 12,
+                s.countSolutions(100));
+        assertEquals("capped count", 2, s.countSolutions(2));
+
+        ParseTest.setUp("Joe is the plumber. Tom lives around here.",
+                "Joe is the carpenter.",
+                "What do you know about Joe?");
+        p = Parser.parse(ParseTest.getReader());
+        assertEquals("impossible", 0,
+                p.propagate(new Solver()).countSolutions(2));
+
+        ParseTest.setUp("Joe is the plumber. Joe lives in the red house.",
+                "What do you know about Joe?");
+        p = Parser.parse(ParseTest.getReader());
+        assertEquals("unique", 1,
+                p.propagate(new Solver()).countSolutions(2));
+    }
+
+    /** Each question is answered from what the solver knows when it is
+     *  asked, including facts it has learned since the last question. */
+    @Test public void answerIndex() {
+        ParseTest.setUp("Joe is the plumber. Tom is the cook.",
+                "There is a red house. There is a blue house.",
+                "Amy lives in the green house.",
+                "What do you know about Joe?",
+                "What do you know about the red house?",
+                "Where does the cook live?",
+                "Who lives in the red house?",
+                "What does the occupant of the red house do?",
+                "What do you know about the cook?",
+                "What does Amy do?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        Solver s = p.inform(new Solver());
+        String[] before = {"Joe is the plumber.", "Nothing.",
+            "I don't know.", "I don't know.", "I don't know.",
+            "Tom is the cook.", "I don't know."};
+        for (int i = 0; i < before.length; i += 1) {
+            assertEquals(before[i], p.getAnswer(s, i));
+        }
+
+        s = p.add(new StringReader("The cook lives in the red house."), s);
+        String[] after = {"Joe is the plumber and lives in the blue house.",
+            "Tom is the cook and lives in the red house.",
+            "The cook lives in the red house.",
+            "Tom lives in the red house.",
+            "The cook lives in the red house.",
+            "Tom is the cook and lives in the red house.",
+            "I don't know."};
+        for (int i = 0; i < after.length; i += 1) {
+            assertEquals(after[i], p.getAnswer(s, i));
+        }
+    }
+
+    /** Answers kept for one puzzle answer any puzzle making the same
+     *  assertions, perhaps about entities named otherwise, and the answers
+     *  least recently used are deleted once they take up too much
+     *  room. */
+    @Test public void cachedSolving() throws IOException {
+        Path directory = Files.createTempDirectory("answers");
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        ParseTest.setUp("Joe is the plumber. Tom lives in the red house.",
+                "There is a blue house.",
+                "What do you know about Joe?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        assertNull("not yet kept", cache.get(p, p.canonical()));
+        cache.put(p.canonical(), p.inform(new Solver()).answers());
+
+        ParseTest.setUp("There is a blue house.   Tom lives in the red house.",
+                "Joe is the plumber.  Joe is the plumber.",
+                "Where does Joe live? What does Tom do?",
+                "Who lives in the red house?");
+        Parser q = Parser.parse(ParseTest.getReader());
+        Answers kept = new ResultCache(directory, 1 << 20).get(q,
+                q.canonical());
+        assertNotNull("kept for the same assertions", kept);
+        Solver s = q.inform(new Solver());
+        for (int i = 0; i < q.numQuestions(); i += 1) {
+            assertEquals(q.getAnswer(s, i), q.getAnswer(kept, i));
+        }
+        assertEquals("Joe lives in the blue house.", q.getAnswer(kept, 0));
+
+        ParseTest.setUp("Amy is the cook. There is a gray house.",
+                "Bob lives in the pink house.",
+                "Where does Amy live? What does Bob do?");
+        Parser renamed = Parser.parse(ParseTest.getReader());
+        assertEquals("renamed", p.canonical().lines(),
+                renamed.canonical().lines());
+        kept = cache.get(renamed, renamed.canonical());
+        assertNotNull("kept for the same assertions, renamed", kept);
+        assertEquals("Amy lives in the gray house.",
+                renamed.getAnswer(kept, 0));
+        assertEquals("I don't know.", renamed.getAnswer(kept, 1));
+
+        ParseTest.setUp("Joe is the plumber.", "Who is the plumber?");
+        Parser r = Parser.parse(ParseTest.getReader());
+        assertNull("other assertions", cache.get(r, r.canonical()));
+        cache = new ResultCache(directory, 1);
+        cache.put(r.canonical(), r.inform(new Solver()).answers());
+        assertNull("least recently used", cache.get(p, p.canonical()));
+        assertEquals("Joe is the plumber.",
+                r.getAnswer(cache.get(r, r.canonical()), 0));
+
+        ParseTest.setUp("Joe is the plumber. Tom is the plumber.");
+        Parser t = Parser.parse(ParseTest.getReader());
+        cache.put(t.canonical(), t.inform(new Solver()).answers());
+        assertTrue("impossible", cache.get(t, t.canonical()).impossible());
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /** Answers that cannot be deleted are forgotten, rather than keeping
+     *  the answers just kept from being kept. */
+    @Test public void cacheEvictionFailures() throws IOException {
+        Path directory = Files.createTempDirectory("answers");
+        Parser[] puzzles = new Parser[3];
+        String[] assertions = {"Joe is the plumber.", "Joe is the cook.",
+            "Joe lives in the red house."};
+        for (int i = 0; i < puzzles.length; i += 1) {
+            ParseTest.setUp(assertions[i], "What do you know about Joe?");
+            puzzles[i] = Parser.parse(ParseTest.getReader());
+        }
+        ResultCache cache = new ResultCache(directory, 1 << 20);
+        long capacity = 0;
+        for (int i = 0; i < 2; i += 1) {
+            cache.put(puzzles[i].canonical(),
+                    puzzles[i].inform(new Solver()).answers());
+        }
+        ArrayList<Path> files = new ArrayList<Path>();
+        for (Path file : Files.newDirectoryStream(directory)) {
+            files.add(file);
+            capacity += Files.size(file);
+        }
+        cache = new ResultCache(directory, capacity);
+        for (Path file : files) {
+            Files.delete(file);
+            Files.createDirectories(file.resolve("undeletable"));
+        }
+        cache.put(puzzles[2].canonical(),
+                puzzles[2].inform(new Solver()).answers());
+        assertEquals("Joe lives in the red house.", puzzles[2].getAnswer(
+                cache.get(puzzles[2], puzzles[2].canonical()), 0));
+        for (Path file : files) {
+            Files.delete(file.resolve("undeletable"));
+        }
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /** Assertions added to a solved puzzle are propagated into the same
+     *  solver, unless a new entity makes the puzzle grow. */
+    @Test public void incrementalSolving() {
+        ParseTest.setUp("Joe is the plumber. Tom is the cook.",
+                "Who is the plumber? Where does Joe live?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        Solver s = p.inform(new Solver());
+        assertEquals("Joe is the plumber.", p.getAnswer(s, 0));
+        assertEquals("I don't know.", p.getAnswer(s, 1));
+
+        Solver t = p.add(new StringReader(
+                "Tom lives in the blue house."), s);
+        assertSame("an anonymous color is named", s, t);
+        assertEquals("complexity", 2, t.getComplexity());
+        assertEquals(3, p.numAssertions());
+        assertEquals("Joe's color is anonymous", "I don't know.",
+                p.getAnswer(t, 1));
+
+        t = p.add(new StringReader("Amy lives around here."), t);
+        assertTrue("a third person makes the puzzle grow", s != t);
+        assertEquals("complexity", 3, t.getComplexity());
+        assertEquals("Joe is the plumber.", p.getAnswer(t, 0));
+        assertEquals("I don't know.", p.getAnswer(t, 1));
+
+        t = p.add(new StringReader(
+                "Tom does not live in the blue house."), t);
+        assertTrue("contradiction", t.impossible());
+
+        for (String clue : new String[] {"Who is the cook?",
+                "Bob is a cook.", "Bob is the house."}) {
+            try {
+                p.add(new StringReader(clue), t);
+                fail(clue + " should not be added");
+            } catch (PuzzleException e) {
+                assertEquals("unchanged", 5, p.numAssertions());
+            }
+        }
+    }
+
+    /** The text printed for a puzzle, by itself or in a batch. */
+    @Test public void solveOutput() {
+        ParseTest.setUp("Joe is the plumber. Joe lives in the red house.",
+                "Who is the plumber?");
+        assertEquals("wrong output",
+                "1. Joe is the plumber.\n2. Joe lives in the red house.\n\n"
+                + "Q: Who is the plumber?\n"
+                + "A: Joe is the plumber.\n",
+                Solve.solve(ParseTest.getReader(), 0));
+        ParseTest.setUp("Joe is the plumber. Tom lives around here.",
+                "Who is the plumber?");
+        assertEquals("wrong count", "under-constrained: 2 solutions\n",
+                Solve.solve(ParseTest.getReader(), 3));
+    }
+
+    /** Puzzles read from a stream, as from the standard input or a
+     *  client, each get their result followed by the delimiter. */
+    @Test public void streamOutput() throws IOException {
+        ParseTest.setUp("Joe is the plumber. Tom lives around here.",
+                "Who is the plumber?", "%%", "Joe is.", "%%",
+                "Amy lives in the red house.");
+        StringWriter output = new StringWriter();
+        assertFalse("one puzzle has an error", Solve.solveStream(
+                ParseTest.getReader(), output, "%%", 2));
+        assertEquals("wrong output",
+                "under-constrained: at least 2 solutions\n%%\n"
+                + "Error: an assertion is unformatted\n%%\n"
+                + "unique\n%%\n", output.toString());
+    }
+
+    /** A client that keeps its connection open while sending nothing
+     *  holds up no other client, even with only one worker. */
+    @Test public void idleClients() throws IOException, InterruptedException {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                0));
+        Thread serving = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Solve.serve(server, "%%", 2, 1);
+            }
+        });
+        serving.start();
+        try (Socket idle = new Socket();
+             Socket busy = new Socket()) {
+            idle.connect(server.getLocalAddress());
+            busy.connect(server.getLocalAddress());
+            busy.setSoTimeout(10000);
+            Writer output = new OutputStreamWriter(busy.getOutputStream(),
+                    UTF_8);
+            output.write("Joe is the plumber. Tom lives around here.\n"
+                    + "Who is the plumber?\n%%\n");
+            output.flush();
+            BufferedReader input = new BufferedReader(
+                    new InputStreamReader(busy.getInputStream(), UTF_8));
+            assertEquals("wrong result",
+                    "under-constrained: at least 2 solutions",
+                    input.readLine());
+            assertEquals("no delimiter", "%%", input.readLine());
+        } finally {
+            server.close();
+            serving.join();
+        }
+    }
+
+    /** Contradictions are caught as soon as they are stated. */
+    @Test public void impossibleSolving() {
+        ParseTest.setUp("Joe is the plumber. Tom lives around here.",
+                "Joe is the carpenter.",
+                "What do you know about Joe?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        Solver s = p.inform(new Solver());
+        assertTrue("two jobs for one person", s.impossible());
+
+        ParseTest.setUp("The plumber lives in the red house.",
+                "Joe does not live in the red house.",
+                "Joe is the plumber.", "Tom is the carpenter.",
+                "What do you know about Joe?");
+        p = Parser.parse(ParseTest.getReader());
+        s = new Solver();
+        s.setParameters(p.getPeople(), p.getJobs(), p.getColors());
+        p.inform(s, 0);
+        p.inform(s, 1);
+        assertFalse("consistent so far", s.impossible());
+        p.inform(s, 2);
+        s.makeInferences();
+        assertTrue("association against a disassociation", s.impossible());
+    }
+
+    /** Three people who share three jobs among themselves leave the other
+     *  jobs to everyone else, without any guessing. */
+    @Test public void hallSetFiltering() {
+        ParseTest.setUp("Ann is not the cook.", "Ann is not the diver.",
+                "Ann is not the editor.", "Bob is not the actor.",
+                "Bob is not the diver.", "Bob is not the editor.",
+                "Cal is not the baker.", "Cal is not the diver.",
+                "Cal is not the editor.", "Dan lives around here.",
+                "Eve lives around here.",
+                "What do you know about Dan?");
+        Parser p = Parser.parse(ParseTest.getReader());
+        Solver s = new Solver();
+        s.setParameters(p.getPeople(), p.getJobs(), p.getColors());
+        for (int k = 0; k < 9; k += 1) {
+            p.inform(s, k);
+        }
+        s.makeInferences();
+        assertFalse("consistent", s.impossible());
+        assertEquals("jobs left for Dan",
+                new ArrayList<String>(Arrays.asList("diver", "editor")),
+                s.knownAbout("Dan").get(0));
+
+        ParseTest.setUp("Ann is not the cook.", "Ann is not the diver.",
+                "Ann is not the editor.", "Ann is not the farmer.",
+                "Bob is not the actor.", "Bob is not the diver.",
+                "Bob is not the editor.", "Bob is not the farmer.",
+                "Cal is not the baker.", "Cal is not the diver.",
+                "Cal is not the editor.", "Cal is not the farmer.",
+                "Dan is not the diver.", "Dan is not the editor.",
+                "Dan is not the farmer.", "Eve lives around here.",
+                "Fay lives around here.",
+                "What do you know about Ann?");
+        p = Parser.parse(ParseTest.getReader());
+        s = new Solver();
+        s.setParameters(p.getPeople(), p.getJobs(), p.getColors());
+        for (int k = 0; k < 15; k += 1) {
+            p.inform(s, k);
+        }
+        s.makeInferences();
+        assertTrue("four people for three jobs", s.impossible());
+    }
+
+    /** Generated puzzles are as hard as asked, and the same from the same
+     *  seed. */
+    @Test public void generatedPuzzles() {
+        for (Generator.Hardness hardness : Generator.Hardness.values()) {
+            Generator generator = new Generator(7, 12, hardness, 0.5);
+            for (int k = 0; k < 5; k += 1) {
+                String text = generator.puzzle(k);
+                assertEquals("same puzzle again", text, generator.puzzle(k));
+                Parser p = Parser.parse(new StringReader(text));
+                assertEquals("hardness of puzzle " + k, hardness,
+                        Generator.classify(p.propagate(new Solver())));
+            }
+        }
+        assertFalse("different puzzles",
+                new Generator(7, 12, Generator.Hardness.PROPAGATION, 0.5)
+                .puzzle(0).equals(new Generator(8, 12,
+                        Generator.Hardness.PROPAGATION, 0.5).puzzle(0)));
+        assertFalse("too small to need deep search",
+                Generator.fits(3, Generator.Hardness.DEEP_SEARCH));
+    }
+
+    /** No generated name is spelled like a keyword, however many names a
+     *  puzzle needs. */
+    @Test public void generatedNames() {
+        String text = new Generator(1, 2200, Generator.Hardness.PROPAGATION,
+                0.4).puzzle(0);
+        Parser p = Parser.parse(new StringReader(text));
+        assertEquals("wrong number of people", 2200, p.numQuestions());
+    }
+
+    /** The solver's work is counted only while counting is enabled, and
+     *  the counts can be read through JMX. */
+    @Test public void solverStats() throws JMException {
+        String text = new Generator(7, 12, Generator.Hardness.DEEP_SEARCH,
+                0.5).puzzle(0);
+        Stats.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Stats.NAME);
+        server.invoke(name, "reset", null, null);
+        Solve.solve(new StringReader(text), 0);
+        assertEquals("counted while disabled", 0L,
+                server.getAttribute(name, "Inferences"));
+        server.setAttribute(name, new Attribute("Enabled", true));
+        try {
+            Solve.solve(new StringReader(text), 0);
+            assertTrue("no inferences counted",
+                    (Long) server.getAttribute(name, "Inferences") > 0);
+            assertTrue("no branches counted",
+                    (Long) server.getAttribute(name, "Branches") > 0);
+            assertTrue("no clones counted",
+                    (Long) server.getAttribute(name, "Clones") > 0);
+            assertTrue("parsing not timed",
+                    (Long) server.getAttribute(name, "ParseNanos") > 0);
+            assertTrue("branching not timed",
+                    (Long) server.getAttribute(name, "BranchNanos") > 0);
+        } finally {
+            server.setAttribute(name, new Attribute("Enabled", false));
+            server.invoke(name, "reset", null, null);
+        }
+    }
+
 }
@@ -2,116 +2,209 @@ package puzzle;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 
 /** A puzzle-solving engine.
     @author Tanner Wauchope */
 class Solver {
 
+    /** The relation between a person and a job. */
+    static final int PERSON_JOB = 0;
+
+    /** The relation between a person and a color. */
+    static final int PERSON_COLOR = 1;
+
+    /** The relation between a job and a color. */
+    static final int JOB_COLOR = 2;
+
+    /** The default for the most guesses that exploreBranches may make on
+     *  top of one another. */
+    static final int DEFAULT_MAX_SEARCH_DEPTH = Integer.MAX_VALUE;
+
+    /** The default for the most hypotheticals that exploreBranches may
+     *  try. */
+    static final int DEFAULT_MAX_SEARCH_NODES = 100000;
+
+    /** The engine that explores branches by guessing and propagating. */
+    static final int GUESSING = 0;
+
+    /** The engine that explores branches as an exact cover problem. */
+    static final int EXACT_COVER = 1;
+
+    /** The engine that explores branches as a boolean formula. */
+    static final int SATISFIABILITY = 2;
+
+    /** The version of this engine, which must change whenever a change
+     *  to it might change the answers it finds for some puzzle, so that
+     *  answers kept from an earlier version are not used. */
+    static final int VERSION = 1;
+
+    /** The number of ints in a state recorded by checkpoint. */
+    private static final int CHECKPOINT_SIZE = 6;
+
+    /** The name of each relation, indexed by relation. */
+    private static final String[] RELATION_NAMES =
+        {"personJob", "personColor", "jobColor"};
+
     /** The number of people in the puzzle, including anonymous people. */
     private int complexity;
 
-    /** Indicates whether impossibility has been confirmed. */
+    /** Indicates whether impossibility has been confirmed.  It is set as
+     *  soon as a fact contradicts an earlier one, after which no more
+     *  facts are recorded. */
     private boolean impossible;
 
     /**
-     *  This is a set of the associations that have been made.
-     *  Each association is a 2-item array with one of the following types:
-     *      [person, job]
-     *      [person, color]
-     *      [job, color]
+     *  This is a set of the associations that have been made, in the
+     *  order they were made.  Each association relates the ids of two
+     *  entities by one of the following relations:
+     *      PERSON_JOB: person, job
+     *      PERSON_COLOR: person, color
+     *      JOB_COLOR: job, color
      */
-    private ArrayList<String[]> associations;
+    private Ledger associations;
 
     /**
      *  This is a set of the disassociations that have been made.
-     *  Each disassociation is a 2-item array with one of the following types:
-     *      [person, job]
-     *      [person, color]
-     *      [job, color]
+     *  Each disassociation is laid out like an association.
      */
-    private ArrayList<String[]> disassociations;
+    private Ledger disassociations;
 
     /**
      *  A list of the people in the puzzle, including anonymous people.
      *  A person's index in this list is the same as that person's index
-     *  in the list this.factsByPerson.
+     *  in this.domains.
      */
     private ArrayList<String> people;
 
     /**
      *  A list of the jobs in the puzzle, including anonymous jobs.
      *  A job's index in this list is the same as the that job's index
-     *  in the list this.factsByJob.
+     *  in this.domains.
      */
     private ArrayList<String> jobs;
 
     /**
      *  A list of the colors in the puzzle, including anonymous colors.
-     *  A person's index in this list is the same as the color's index
-     *  in the list this.factsByPerson.
+     *  A color's index in this list is the same as the color's index
+     *  in this.domains.
      */
     private ArrayList<String> colors;
 
-    /**
-     *  Each sublist in this.factsByPerson corresponds to a specific person,
-     *  and each sublist contains two sub-sublists. The first sub-sublist holds
-     *  possible jobs, and the second sub-sublist holds possible colors.
-     *  factsByPerson might look like this:
-     *      [[[professor, doctor], [blue, green]],
-     *       [[software engineer], [blue, green]],
-     *       [[professor, doctor], [yellow]    ]]]
-     */
-    private ArrayList<ArrayList<ArrayList<String>>> factsByPerson;
+    /** Maps the name of each person to that person's id, which is the
+     *  person's index in this.people. */
+    private HashMap<String, Integer> personIds;
+
+    /** Maps the name of each job to that job's id. */
+    private HashMap<String, Integer> jobIds;
+
+    /** Maps the name of each color to that color's id. */
+    private HashMap<String, Integer> colorIds;
+
+    /** The number of people, jobs, and colors that have names, indexed by
+     *  kind of entity, such as Sentence.PERSON.  The anonymous entities
+     *  of each kind follow the named ones. */
+    private int[] named;
 
     /**
-     *  Each sublist in this.factsByPerson corresponds to a specific person,
-     *  and each sublist contains two sub-sublists. The first sub-sublist holds
-     *  possible jobs, and the second sub-sublist holds possible colors.
-     *  factsByPerson might look like this:
-     *      [[[Bob, Mark], [blue, green]],
-     *       [[Alexander], [blue, green]],
-     *       [[Bob, Mark], [yellow]    ]]]
+     *  The possible attributes of every person, job, and color, indexed
+     *  by the positions of entities in this.people, this.jobs, and
+     *  this.colors.  For example, the set of PERSON_JOBS for person 0
+     *  holds the indices of the jobs that person 0 might have.
      */
-    private ArrayList<ArrayList<ArrayList<String>>> factsByJob;
+    private Domains domains;
+
+    /** The most guesses that exploreBranches may make on top of one
+     *  another. */
+    private int maxSearchDepth;
+
+    /** The most hypotheticals that exploreBranches may try. */
+    private int maxSearchNodes;
+
+    /** The engine with which exploreBranches explores, such as
+     *  GUESSING. */
+    private int engine;
 
     /**
-     *  Each sublist in this.factsByPerson corresponds to a specific person,
-     *  and each sublist contains two sub-sublists. The first sub-sublist holds
-     *  possible jobs, and the second sub-sublist holds possible colors.
-     *  factsByPerson might look like this:
-     *      [[[Bob, Mark], [professor, doctor]],
-     *       [[Alexander], [software engineer]],
-     *       [[Bob, Mark], [professor, doctor]]]
+     *  The states recorded by checkpoint, CHECKPOINT_SIZE ints apiece:
+     *  the trail mark of this.domains, the sizes of this.associations and
+     *  this.disassociations, the two review counts, and 1 if impossible.
      */
-    private ArrayList<ArrayList<ArrayList<String>>> factsByColor;
+    private int[] checkpoints;
+
+    /** The number of states in this.checkpoints. */
+    private int levels;
+
+    /** The number of associations, counted from the first, that
+     *  makeInferences has already reviewed. */
+    private int reviewedAssociations;
+
+    /** The number of disassociations, counted from the first, that
+     *  makeInferences has already reviewed. */
+    private int reviewedDisassociations;
+
+    /** The answers to what I know, as of the last call to answers, or
+     *  null if I have learned or forgotten something since. */
+    private Answers answers;
+
+    /** The number of facts I had when this.answers was made. */
+    private int answered;
 
     /** A new Solver, containing no information. */
     Solver() {
-        this.factsByPerson = new ArrayList<ArrayList<ArrayList<String>>>();
-        this.factsByJob = new ArrayList<ArrayList<ArrayList<String>>>();
-        this.factsByColor = new ArrayList<ArrayList<ArrayList<String>>>();
-        this.associations = new ArrayList<String[]>();
-        this.disassociations = new ArrayList<String[]>();
+        this.domains = new Domains(0);
+        this.associations = new Ledger(0);
+        this.disassociations = new Ledger(0);
         this.people = new ArrayList<String>();
         this.jobs = new ArrayList<String>();
         this.colors = new ArrayList<String>();
+        this.personIds = new HashMap<String, Integer>();
+        this.jobIds = new HashMap<String, Integer>();
+        this.colorIds = new HashMap<String, Integer>();
+        this.named = new int[Sentence.KINDS];
+        this.reviewedAssociations = 0;
+        this.reviewedDisassociations = 0;
+        this.checkpoints = new int[CHECKPOINT_SIZE];
+        this.levels = 0;
+        this.maxSearchDepth = DEFAULT_MAX_SEARCH_DEPTH;
+        this.maxSearchNodes = DEFAULT_MAX_SEARCH_NODES;
+        this.engine = GUESSING;
         this.complexity = 0;
         this.impossible = false;
     }
 
     /**
-     * @return the associations
+     * @return the associations, as [name, name, relation name] arrays
      */
     public ArrayList<String[]> getAssociations() {
-        return this.associations;
+        return named(this.associations);
     }
 
     /**
-     * @return the associations
+     * @return the disassociations, as [name, name, relation name] arrays
      */
     public ArrayList<String[]> getDisassociations() {
-        return this.disassociations;
+        return named(this.disassociations);
+    }
+
+    /**
+     * @param pairs  associations or disassociations of entity ids
+     * @return  PAIRS, with every id and relation replaced by its name
+     */
+    private ArrayList<String[]> named(Ledger pairs) {
+        ArrayList<String[]> result = new ArrayList<String[]>();
+        for (int k = 0; k < pairs.size(); k += 1) {
+            int relation = pairs.relation(k);
+            ArrayList<String> names0 =
+                    relation == JOB_COLOR ? this.jobs : this.people;
+            ArrayList<String> names1 =
+                    relation == PERSON_JOB ? this.jobs : this.colors;
+            String[] names = {names0.get(pairs.first(k)),
+                names1.get(pairs.second(k)), RELATION_NAMES[relation]};
+            result.add(names);
+        }
+        return result;
     }
 
     /**
@@ -142,6 +235,21 @@ class Solver {
         return this.complexity;
     }
 
+    /** Return the id of the person named PERSON. */
+    int personId(String person) {
+        return this.personIds.get(person);
+    }
+
+    /** Return the id of the job named JOB. */
+    int jobId(String job) {
+        return this.jobIds.get(job);
+    }
+
+    /** Return the id of the color named COLOR. */
+    int colorId(String color) {
+        return this.colorIds.get(color);
+    }
+
     /**
      * @param importedPeople  The people recognized by calling parser.
      *                        It does not include anonymous people.
@@ -155,6 +263,9 @@ class Solver {
             LinkedHashSet<String> importedColors) {
         this.complexity = Math.max(importedPeople.size(),
                 Math.max(importedJobs.size(), importedColors.size()));
+        this.named[Sentence.PERSON] = importedPeople.size();
+        this.named[Sentence.JOB] = importedJobs.size();
+        this.named[Sentence.COLOR] = importedColors.size();
         this.people.addAll(importedPeople);
         this.jobs.addAll(importedJobs);
         this.colors.addAll(importedColors);
@@ -167,57 +278,74 @@ class Solver {
         while (this.colors.size() != this.complexity) {
             this.colors.add(String.format("color#%d", this.colors.size()));
         }
+        for (int i = 0; i < this.complexity; i += 1) {
+            this.personIds.put(this.people.get(i), i);
+            this.jobIds.put(this.jobs.get(i), i);
+            this.colorIds.put(this.colors.get(i), i);
+        }
         populatePossibilities();
     }
 
     /**
-     *  Loads all possible options into the three facts lists.
+     * @param kind  the kind of entity to name, such as Sentence.PERSON
+     * @param name  a name that no entity has yet
+     * @return  true if the first anonymous entity of KIND now has NAME,
+     *          or false if every entity of KIND already had a name.  The
+     *          entity keeps its id and everything known about it.
+     */
+    boolean name(int kind, String name) {
+        if (this.named[kind] == this.complexity) {
+            return false;
+        }
+        ArrayList<String> names = kind == Sentence.PERSON ? this.people
+                : kind == Sentence.JOB ? this.jobs : this.colors;
+        HashMap<String, Integer> ids = kind == Sentence.PERSON
+                ? this.personIds
+                : kind == Sentence.JOB ? this.jobIds : this.colorIds;
+        int id = this.named[kind];
+        ids.remove(names.get(id));
+        names.set(id, name);
+        ids.put(name, id);
+        this.named[kind] += 1;
+        this.answers = null;
+        return true;
+    }
+
+    /**
+     *  Loads all possible options into this.domains, and makes room for
+     *  the facts that will rule them out.  A puzzle with one entity of
+     *  each type has only one option, which is associated right away.
      */
     private void populatePossibilities() {
-        for (int i = 0; i < this.complexity; i += 1) {
-            this.factsByPerson.add(new ArrayList<ArrayList<String>>());
-            this.factsByPerson.get(i).add(new ArrayList<String>());
-            this.factsByPerson.get(i).add(new ArrayList<String>());
-            for (int j = 0; j < this.complexity; j += 1) {
-                this.factsByPerson.get(i).get(0).add(this.jobs.get(j));
-                this.factsByPerson.get(i).get(1).add(this.colors.get(j));
-            }
-            this.factsByJob.add(new ArrayList<ArrayList<String>>());
-            this.factsByJob.get(i).add(new ArrayList<String>());
-            this.factsByJob.get(i).add(new ArrayList<String>());
-            for (int j = 0; j < this.complexity; j += 1) {
-                this.factsByJob.get(i).get(0).add(this.people.get(j));
-                this.factsByJob.get(i).get(1).add(this.colors.get(j));
-            }
-            this.factsByColor.add(new ArrayList<ArrayList<String>>());
-            this.factsByColor.get(i).add(new ArrayList<String>());
-            this.factsByColor.get(i).add(new ArrayList<String>());
-            for (int j = 0; j < this.complexity; j += 1) {
-                this.factsByColor.get(i).get(0).add(this.people.get(j));
-                this.factsByColor.get(i).get(1).add(this.jobs.get(j));
-            }
+        this.domains = new Domains(this.complexity);
+        this.associations = new Ledger(this.complexity);
+        this.disassociations = new Ledger(this.complexity);
+        this.answers = null;
+        if (this.complexity == 1) {
+            personJobAssociate(0, 0);
+            personColorAssociate(0, 0);
+            jobColorAssociate(0, 0);
         }
     }
 
     /**
      * PERSON is associated with JOB.
      */
-    void personJobAssociate(String person, String job) {
-        String[] association = {person, job, "personJob"};
-        if (!deepContains(this.associations, association)) {
-            this.associations.add(association);
-            int personIndex = this.people.indexOf(person);
-            this.factsByPerson.get(personIndex).get(0).clear();
-            this.factsByPerson.get(personIndex).get(0).add(job);
-            int jobIndex = this.jobs.indexOf(job);
-            this.factsByJob.get(jobIndex).get(0).clear();
-            this.factsByJob.get(jobIndex).get(0).add(person);
+    void personJobAssociate(int person, int job) {
+        if (this.impossible) {
+            return;
+        } else if (!this.domains.contains(Domains.PERSON_JOBS, person, job)
+                || !this.domains.contains(Domains.JOB_PEOPLE, job, person)) {
+            this.impossible = true;
+        } else if (this.associations.add(PERSON_JOB, person, job)) {
+            this.domains.pin(Domains.PERSON_JOBS, person, job);
+            this.domains.pin(Domains.JOB_PEOPLE, job, person);
             for (int i = 0; i < this.complexity; i += 1) {
-                if (!this.people.get(i).equals(person)) {
-                    personJobDisassociate(this.people.get(i), job);
+                if (i != person) {
+                    personJobDisassociate(i, job);
                 }
-                if (!this.jobs.get(i).equals(job)) {
-                    personJobDisassociate(person, this.jobs.get(i));
+                if (i != job) {
+                    personJobDisassociate(person, i);
                 }
             }
         }
@@ -227,21 +355,19 @@ class Solver {
      * This method attempts to use the association of PERSON and JOB
      * to make inferences.
      */
-    private void personJobReassociate(String person, String job) {
+    private void personJobReassociate(int person, int job) {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (!this.factsByColor.get(i).get(0).contains(person)) {
-                jobColorDisassociate(job, this.colors.get(i));
+            if (!this.domains.contains(Domains.COLOR_PEOPLE, i, person)) {
+                jobColorDisassociate(job, i);
             }
-            if (!this.factsByColor.get(i).get(1).contains(job)) {
-                personColorDisassociate(person, this.colors.get(i));
+            if (!this.domains.contains(Domains.COLOR_JOBS, i, job)) {
+                personColorDisassociate(person, i);
             }
-            String[] premise1 = {person, this.colors.get(i), "personColor"};
-            if (deepContains(this.associations, premise1)) {
-                jobColorAssociate(job, this.colors.get(i));
+            if (this.associations.contains(PERSON_COLOR, person, i)) {
+                jobColorAssociate(job, i);
             }
-            String[] premise2 = {job, this.colors.get(i), "personColor"};
-            if (deepContains(this.associations, premise2)) {
-                personColorAssociate(person, this.colors.get(i));
+            if (this.associations.contains(JOB_COLOR, job, i)) {
+                personColorAssociate(person, i);
             }
         }
     }
@@ -249,22 +375,23 @@ class Solver {
     /**
      *  PERSON is associated with COLOR.
      */
-    void personColorAssociate(String person, String color) {
-        String[] association = {person, color, "personColor"};
-        if (!deepContains(this.associations, association)) {
-            this.associations.add(association);
-            int personIndex = this.people.indexOf(person);
-            this.factsByPerson.get(personIndex).get(1).clear();
-            this.factsByPerson.get(personIndex).get(1).add(color);
-            int colorIndex = this.colors.indexOf(color);
-            this.factsByColor.get(colorIndex).get(0).clear();
-            this.factsByColor.get(colorIndex).get(0).add(person);
+    void personColorAssociate(int person, int color) {
+        if (this.impossible) {
+            return;
+        } else if (!this.domains.contains(
+                        Domains.PERSON_COLORS, person, color)
+                || !this.domains.contains(
+                        Domains.COLOR_PEOPLE, color, person)) {
+            this.impossible = true;
+        } else if (this.associations.add(PERSON_COLOR, person, color)) {
+            this.domains.pin(Domains.PERSON_COLORS, person, color);
+            this.domains.pin(Domains.COLOR_PEOPLE, color, person);
             for (int i = 0; i < this.complexity; i += 1) {
-                if (!this.people.get(i).equals(person)) {
-                    personColorDisassociate(this.people.get(i), color);
+                if (i != person) {
+                    personColorDisassociate(i, color);
                 }
-                if (!this.colors.get(i).equals(color)) {
-                    personColorDisassociate(person, this.colors.get(i));
+                if (i != color) {
+                    personColorDisassociate(person, i);
                 }
             }
         }
@@ -274,21 +401,19 @@ class Solver {
      * This method attempts to use the association of PERSON and COLOR
      * to make inferences.
      */
-    private void personColorReassociate(String person, String color) {
+    private void personColorReassociate(int person, int color) {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (!this.factsByJob.get(i).get(0).contains(person)) {
-                jobColorDisassociate(this.jobs.get(i), color);
+            if (!this.domains.contains(Domains.JOB_PEOPLE, i, person)) {
+                jobColorDisassociate(i, color);
             }
-            if (!this.factsByJob.get(i).get(1).contains(color)) {
-                personJobDisassociate(person, this.jobs.get(i));
+            if (!this.domains.contains(Domains.JOB_COLORS, i, color)) {
+                personJobDisassociate(person, i);
             }
-            String[] premise1 = {person, this.jobs.get(i), "personJob"};
-            if (deepContains(this.associations, premise1)) {
-                jobColorAssociate(this.jobs.get(i), color);
+            if (this.associations.contains(PERSON_JOB, person, i)) {
+                jobColorAssociate(i, color);
             }
-            String[] premise2 = {this.jobs.get(i), color, "jobColor"};
-            if (deepContains(this.associations, premise2)) {
-                personJobAssociate(person, this.jobs.get(i));
+            if (this.associations.contains(JOB_COLOR, i, color)) {
+                personJobAssociate(person, i);
             }
         }
     }
@@ -296,22 +421,21 @@ class Solver {
     /**
      *  JOB is associated with COLOR.
      */
-    void jobColorAssociate(String job, String color) {
-        String[] association = {job, color, "jobColor"};
-        if (!deepContains(this.associations, association)) {
-            this.associations.add(association);
-            int jobIndex = this.jobs.indexOf(job);
-            this.factsByJob.get(jobIndex).get(1).clear();
-            this.factsByJob.get(jobIndex).get(1).add(color);
-            int colorIndex = this.colors.indexOf(color);
-            this.factsByColor.get(colorIndex).get(1).clear();
-            this.factsByColor.get(colorIndex).get(1).add(job);
+    void jobColorAssociate(int job, int color) {
+        if (this.impossible) {
+            return;
+        } else if (!this.domains.contains(Domains.JOB_COLORS, job, color)
+                || !this.domains.contains(Domains.COLOR_JOBS, color, job)) {
+            this.impossible = true;
+        } else if (this.associations.add(JOB_COLOR, job, color)) {
+            this.domains.pin(Domains.JOB_COLORS, job, color);
+            this.domains.pin(Domains.COLOR_JOBS, color, job);
             for (int i = 0; i < this.complexity; i += 1) {
-                if (!this.jobs.get(i).equals(job)) {
-                    jobColorDisassociate(this.jobs.get(i), color);
+                if (i != job) {
+                    jobColorDisassociate(i, color);
                 }
-                if (!this.colors.get(i).equals(color)) {
-                    jobColorDisassociate(job, this.colors.get(i));
+                if (i != color) {
+                    jobColorDisassociate(job, i);
                 }
             }
         }
@@ -321,21 +445,19 @@ class Solver {
      * This method attempts to use the association of JOB and COLOR
      * to make inferences.
      */
-    private void jobColorReassociate(String job, String color) {
+    private void jobColorReassociate(int job, int color) {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (!this.factsByPerson.get(i).get(0).contains(job)) {
-                personColorDisassociate(this.people.get(i), color);
+            if (!this.domains.contains(Domains.PERSON_JOBS, i, job)) {
+                personColorDisassociate(i, color);
             }
-            if (!this.factsByPerson.get(i).get(1).contains(color)) {
-                personJobDisassociate(this.people.get(i), job);
+            if (!this.domains.contains(Domains.PERSON_COLORS, i, color)) {
+                personJobDisassociate(i, job);
             }
-            String[] premise1 = {this.people.get(i), job, "personJob"};
-            if (deepContains(this.associations, premise1)) {
-                personColorAssociate(this.people.get(i), color);
+            if (this.associations.contains(PERSON_JOB, i, job)) {
+                personColorAssociate(i, color);
             }
-            String[] premise2 = {this.people.get(i), color, "personColor"};
-            if (deepContains(this.associations, premise2)) {
-                personJobAssociate(this.people.get(i), job);
+            if (this.associations.contains(PERSON_COLOR, i, color)) {
+                personJobAssociate(i, job);
             }
         }
     }
@@ -343,14 +465,15 @@ class Solver {
     /**
      *  PERSON is disassociated with JOB.
      */
-    void personJobDisassociate(String person, String job) {
-        String[] disassociation = {person, job, "personJob"};
-        if (!deepContains(this.disassociations, disassociation)) {
-            this.disassociations.add(disassociation);
-            int personIndex = this.people.indexOf(person);
-            int jobIndex = this.jobs.indexOf(job);
-            this.factsByPerson.get(personIndex).get(0).remove(job);
-            this.factsByJob.get(jobIndex).get(0).remove(person);
+    void personJobDisassociate(int person, int job) {
+        if (!this.impossible
+                && this.disassociations.add(PERSON_JOB, person, job)) {
+            this.domains.remove(Domains.PERSON_JOBS, person, job);
+            this.domains.remove(Domains.JOB_PEOPLE, job, person);
+            if (this.domains.isEmpty(Domains.PERSON_JOBS, person)
+                    || this.domains.isEmpty(Domains.JOB_PEOPLE, job)) {
+                this.impossible = true;
+            }
         }
     }
 
@@ -358,15 +481,13 @@ class Solver {
      * This method attempts to use the disassociation of PERSON and JOB
      * to make inferences.
      */
-    void personJobRedisassociate(String person, String job) {
+    void personJobRedisassociate(int person, int job) {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (this.factsByColor.get(i).get(0).size() == 1
-                    && this.factsByColor.get(i).get(0).get(0).equals(person)) {
-                jobColorDisassociate(job, this.colors.get(i));
+            if (this.domains.pinned(Domains.COLOR_PEOPLE, i, person)) {
+                jobColorDisassociate(job, i);
             }
-            if (this.factsByColor.get(i).get(1).size() == 1
-                    && this.factsByColor.get(i).get(1).get(0).equals(job)) {
-                personColorDisassociate(person, this.colors.get(i));
+            if (this.domains.pinned(Domains.COLOR_JOBS, i, job)) {
+                personColorDisassociate(person, i);
             }
         }
     }
@@ -374,14 +495,15 @@ class Solver {
     /**
      *  PERSON is disassociated with COLOR.
      */
-    void personColorDisassociate(String person, String color) {
-        String[] disassociation = {person, color, "personColor"};
-        if (!deepContains(this.disassociations, disassociation)) {
-            this.disassociations.add(disassociation);
-            int personIndex = this.people.indexOf(person);
-            this.factsByPerson.get(personIndex).get(1).remove(color);
-            int colorIndex = this.colors.indexOf(color);
-            this.factsByColor.get(colorIndex).get(0).remove(person);
+    void personColorDisassociate(int person, int color) {
+        if (!this.impossible
+                && this.disassociations.add(PERSON_COLOR, person, color)) {
+            this.domains.remove(Domains.PERSON_COLORS, person, color);
+            this.domains.remove(Domains.COLOR_PEOPLE, color, person);
+            if (this.domains.isEmpty(Domains.PERSON_COLORS, person)
+                    || this.domains.isEmpty(Domains.COLOR_PEOPLE, color)) {
+                this.impossible = true;
+            }
         }
     }
 
@@ -389,15 +511,13 @@ class Solver {
      * This method attempts to use the disassociation of PERSON and COLOR
      * to make inferences.
      */
-    void personColorRedisassociate(String person, String color) {
+    void personColorRedisassociate(int person, int color) {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (this.factsByJob.get(i).get(0).size() == 1
-                    && this.factsByJob.get(i).get(0).get(0).equals(person)) {
-                jobColorDisassociate(this.jobs.get(i), color);
+            if (this.domains.pinned(Domains.JOB_PEOPLE, i, person)) {
+                jobColorDisassociate(i, color);
             }
-            if (this.factsByJob.get(i).get(1).size() == 1
-                    && this.factsByJob.get(i).get(1).get(0).equals(color)) {
-                personJobDisassociate(person, this.jobs.get(i));
+            if (this.domains.pinned(Domains.JOB_COLORS, i, color)) {
+                personJobDisassociate(person, i);
             }
         }
     }
@@ -405,14 +525,15 @@ class Solver {
     /**
      *  JOB is disassociated with COLOR.
      */
-    void jobColorDisassociate(String job, String color) {
-        String[] disassociation = {job, color, "jobColor"};
-        if (!deepContains(this.disassociations, disassociation)) {
-            this.disassociations.add(disassociation);
-            int jobIndex = this.jobs.indexOf(job);
-            this.factsByJob.get(jobIndex).get(1).remove(color);
-            int colorIndex = this.colors.indexOf(color);
-            this.factsByColor.get(colorIndex).get(1).remove(job);
+    void jobColorDisassociate(int job, int color) {
+        if (!this.impossible
+                && this.disassociations.add(JOB_COLOR, job, color)) {
+            this.domains.remove(Domains.JOB_COLORS, job, color);
+            this.domains.remove(Domains.COLOR_JOBS, color, job);
+            if (this.domains.isEmpty(Domains.JOB_COLORS, job)
+                    || this.domains.isEmpty(Domains.COLOR_JOBS, color)) {
+                this.impossible = true;
+            }
         }
     }
 
@@ -420,35 +541,15 @@ class Solver {
      * This method attempts to use the disassociation of JOB and COLOR
      * to make inferences.
      */
-    void jobColorRedisassociate(String job, String color) {
+    void jobColorRedisassociate(int job, int color) {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (this.factsByPerson.get(i).get(0).size() == 1
-                    && this.factsByPerson.get(i).get(0).get(0).equals(job)) {
-                personColorDisassociate(this.people.get(i), color);
-            }
-            if (this.factsByPerson.get(i).get(1).size() == 1
-                    && this.factsByPerson.get(i).get(1).get(0).equals(color)) {
-                personJobDisassociate(this.people.get(i), job);
+            if (this.domains.pinned(Domains.PERSON_JOBS, i, job)) {
+                personColorDisassociate(i, color);
             }
-        }
-    }
-
-    /**
-     * @param pairs  a set of arrays that may include the content of PAIR
-     * @param pair  an array whose content may be contained in the PAIRS
-     * @return a boolean that is true only when the content of pair is the
-     *         same as the content in one of the arrays in PAIRS
-     */
-    static boolean deepContains(ArrayList<String[]> pairs,
-            String[] pair) {
-        boolean result = false;
-        for (String[] curr : pairs) {
-            if (Arrays.toString(curr).equals(Arrays.toString(pair))) {
-                result = true;
-                break;
+            if (this.domains.pinned(Domains.PERSON_COLORS, i, color)) {
+                personJobDisassociate(i, job);
             }
         }
-        return result;
     }
 
     /** Return a list of two lists, in which each list include entities
@@ -458,14 +559,62 @@ class Solver {
      *     [red, blue, color#2 ]
      *  (where color#2 denotes an anonymous color.). */
     ArrayList<ArrayList<String>> knownAbout(String id) {
-        if (this.people.contains(id.toLowerCase())) {
-            return this.factsByPerson.get(
-                    this.people.indexOf(id.toLowerCase()));
-        } else if (this.jobs.contains(id)) {
-            return this.factsByJob.get(this.jobs.indexOf(id));
-        } else {
-            return this.factsByColor.get(this.colors.indexOf(id));
+        Integer index = this.personIds.get(id.toLowerCase());
+        if (index != null) {
+            return candidates(index, Domains.PERSON_JOBS, this.jobs,
+                    Domains.PERSON_COLORS, this.colors);
+        }
+        index = this.jobIds.get(id);
+        if (index != null) {
+            return candidates(index, Domains.JOB_PEOPLE, this.people,
+                    Domains.JOB_COLORS, this.colors);
+        }
+        return candidates(this.colorIds.get(id), Domains.COLOR_PEOPLE,
+                this.people, Domains.COLOR_JOBS, this.jobs);
+    }
+
+    /**
+     * @param index  the index of an entity in this.domains
+     * @param kind1  the kind of the entity's first candidate set
+     * @param names1  the names of the entities in the first candidate set
+     * @param kind2  the kind of the entity's second candidate set
+     * @param names2  the names of the entities in the second candidate set
+     * @return  a list of the names in each of the entity's candidate sets
+     */
+    private ArrayList<ArrayList<String>> candidates(int index,
+            int kind1, ArrayList<String> names1,
+            int kind2, ArrayList<String> names2) {
+        ArrayList<ArrayList<String>> result =
+                new ArrayList<ArrayList<String>>();
+        result.add(names(kind1, index, names1));
+        result.add(names(kind2, index, names2));
+        return result;
+    }
+
+    /** Return the NAMES of the candidates in the set of KIND for the entity
+     *  at INDEX. */
+    private ArrayList<String> names(int kind, int index,
+            ArrayList<String> names) {
+        ArrayList<String> result = new ArrayList<String>();
+        for (int i = this.domains.first(kind, index); i != -1;
+                i = this.domains.next(kind, index, i + 1)) {
+            result.add(names.get(i));
+        }
+        return result;
+    }
+
+    /** Return the answers to what I now know.  They are indexed once and
+     *  kept until I learn something more, so that every question about a
+     *  solved puzzle takes the same small time. */
+    Answers answers() {
+        int facts = facts();
+        if (this.answers == null || this.answered != facts
+                || this.answers.impossible() != this.impossible) {
+            this.answers = new Answers(this.domains, this.named,
+                    this.impossible, this.people, this.jobs, this.colors);
+            this.answered = facts;
         }
+        return this.answers;
     }
 
     /** Return true iff the current set of facts is impossible. */
@@ -474,285 +623,482 @@ class Solver {
     }
 
     /**
-     * @return  A boolean that is true only if possibilities has been reduced
-     *          to zero for any attribute of any entity.
+     *  Updates associations and reviews disassociations
+     *  until no new inferences are possible.  Every fact that has not yet
+     *  been reviewed is reviewed once, in the order it was made, and
+     *  facts made while reviewing are queued behind it.  Once every fact
+     *  has been reviewed, each relation is filtered as a whole, and any
+     *  disassociations that turn up are reviewed in turn.
      */
-    boolean overconstrained() {
-        for (int i = 0; i < this.complexity; i += 1) {
-            if (this.factsByPerson.get(i).get(0).isEmpty()
-                    || this.factsByPerson.get(i).get(1).isEmpty()
-                    || this.factsByJob.get(i).get(0).isEmpty()
-                    || this.factsByJob.get(i).get(1).isEmpty()
-                    || this.factsByColor.get(i).get(0).isEmpty()
-                    || this.factsByColor.get(i).get(1).isEmpty()) {
-                return true;
+    public void makeInferences() {
+        Stats.count(Stats.INFERENCES, 1);
+        while (!this.impossible) {
+            int facts = facts();
+            if (this.reviewedAssociations < this.associations.size()) {
+                reassociate(this.reviewedAssociations);
+                this.reviewedAssociations += 1;
+                Stats.count(Stats.REASSOCIATIONS, facts() - facts);
+            } else if (this.reviewedDisassociations
+                    < this.disassociations.size()) {
+                redisassociate(this.reviewedDisassociations);
+                Stats.count(Stats.REDISASSOCIATIONS, facts() - facts);
+                eliminate(this.reviewedDisassociations);
+                this.reviewedDisassociations += 1;
+            } else if (!filterRelations()) {
+                break;
             }
         }
-        return false;
+    }
+
+    /** Return the number of facts I know. */
+    private int facts() {
+        return this.associations.size() + this.disassociations.size();
     }
 
     /**
-     * @return  returns true if two or more entities of the same type
-     *          claim the same attribute
+     *  Disassociates every pair of entities that cannot be associated
+     *  without leaving some other entity of the same relation with nothing
+     *  to be associated with, and marks this solver impossible if some
+     *  relation cannot pair up its entities at all.
+     *  @return  true iff a new disassociation was made
      */
-    boolean contradictory() {
-        for (String[] assoc1 : this.associations) {
-            if (deepContains(this.disassociations, assoc1)) {
-                return true;
+    private boolean filterRelations() {
+        Stats.count(Stats.ROUNDS, 1);
+        int before = this.disassociations.size();
+        int[] kinds = {Domains.PERSON_JOBS, Domains.PERSON_COLORS,
+            Domains.JOB_COLORS};
+        for (int relation = 0; relation < kinds.length; relation += 1) {
+            ArrayList<int[]> removals = new ArrayList<int[]>();
+            if (!AllDifferent.filter(this.domains, kinds[relation],
+                    this.complexity, removals)) {
+                this.impossible = true;
+                return false;
             }
-            for (String[] assoc2 : this.associations) {
-                if (assoc1[2].equals(assoc2[2])) {
-                    if (assoc1[0].equals(assoc2[0])
-                            && !assoc1[1].equals(assoc2[1])) {
-                        return true;
-                    }
-                    if (!assoc1[0].equals(assoc2[0])
-                            && assoc1[1].equals(assoc2[1])) {
-                        return true;
-                    }
-                }
+            for (int[] removal : removals) {
+                disassociate(removal[0], removal[1], relation);
             }
         }
-        for (int i = 0; i < this.complexity; i += 1) {
-            int[] known = counts(
-                    this.people.get(i), this.jobs.get(i), this.colors.get(i));
-            for (int j = 0; j < 6; j += 1) {
-                if (known[j] > 1) {
-                    return true;
+        Stats.count(Stats.FILTERINGS, this.disassociations.size() - before);
+        return !this.impossible && this.disassociations.size() > before;
+    }
+
+    /**
+     * @param k  the number of an association that needs to be reviewed
+     */
+    private void reassociate(int k) {
+        int e0 = this.associations.first(k);
+        int e1 = this.associations.second(k);
+        if (this.associations.relation(k) == PERSON_JOB) {
+            personJobReassociate(e0, e1);
+        } else if (this.associations.relation(k) == PERSON_COLOR) {
+            personColorReassociate(e0, e1);
+        } else {
+            jobColorReassociate(e0, e1);
+        }
+    }
+
+    /**
+     * @param k  the number of a dissassociation that needs to be reviewed
+     */
+    private void redisassociate(int k) {
+        int e0 = this.disassociations.first(k);
+        int e1 = this.disassociations.second(k);
+        if (this.disassociations.relation(k) == PERSON_JOB) {
+            personJobRedisassociate(e0, e1);
+        } else if (this.disassociations.relation(k) == PERSON_COLOR) {
+            personColorRedisassociate(e0, e1);
+        } else {
+            jobColorRedisassociate(e0, e1);
+        }
+    }
+
+    /**
+     *  Looks for cases in which (this.complexity - 1) disassociations act
+     *  as the equivalent of an association, among the entities named by
+     *  disassociation K. If such an association is found, the association
+     *  is then formalized.
+     */
+    private void eliminate(int k) {
+        int e0 = this.disassociations.first(k);
+        int e1 = this.disassociations.second(k);
+        int relation = this.disassociations.relation(k);
+        int kind0 = relation == PERSON_JOB ? Domains.PERSON_JOBS
+                : relation == PERSON_COLOR ? Domains.PERSON_COLORS
+                : Domains.JOB_COLORS;
+        int kind1 = relation == PERSON_JOB ? Domains.JOB_PEOPLE
+                : relation == PERSON_COLOR ? Domains.COLOR_PEOPLE
+                : Domains.COLOR_JOBS;
+        int size0 = this.domains.size(kind0, e0);
+        int size1 = this.domains.size(kind1, e1);
+        int facts = facts();
+        if (size0 == 1) {
+            associate(e0, this.domains.first(kind0, e0), relation);
+        }
+        if (size1 == 1) {
+            associate(this.domains.first(kind1, e1), e1, relation);
+        }
+        Stats.count(Stats.ELIMINATIONS, facts() - facts);
+        if (relation == PERSON_JOB && size0 == 2) {
+            reviewPairs(e0);
+        }
+    }
+
+    /**
+     *  If PERSON and some other person are the only two people who may
+     *  hold the same two jobs, nobody else may hold either job.
+     */
+    private void reviewPairs(int person) {
+        int job1 = this.domains.first(Domains.PERSON_JOBS, person);
+        int job2 = this.domains.next(Domains.PERSON_JOBS, person, job1 + 1);
+        int facts = facts();
+        for (int j = 0; j < this.complexity; j += 1) {
+            if (j != person && this.domains.sameCandidates(
+                    Domains.PERSON_JOBS, person, j)) {
+                for (int k = 0; k < this.complexity; k += 1) {
+                    if (k != person && k != j) {
+                        personJobDisassociate(k, job1);
+                        personJobDisassociate(k, job2);
+                    }
                 }
             }
         }
-        return false;
+        Stats.count(Stats.PAIRS, facts() - facts);
     }
 
     /**
-     * @param person  this person is claimed by count2 jobs and count4 colors
-     * @param job  this job is claimed by count0 people and count5 colors
-     * @param color  this color is claimed by count1 people and count3 jobs
-     * @return result  an array of the counts 0 through 5
+     * @return  returns null if there no confirmed branches, but
+     *          otherwise will return the most complete solution that
+     *          every way of completing this puzzle agrees with.  If no way
+     *          of completing this puzzle exists, this solver is marked
+     *          impossible.  With the GUESSING engine, the branches are
+     *          explored in parallel.  With the EXACT_COVER and
+     *          SATISFIABILITY engines, a solution is only returned if it
+     *          is the puzzle's only one.
      */
-    private int[] counts(String person, String job, String color) {
-        int[] result = {0, 0, 0, 0, 0, 0};
-        for (int i = 0; i < this.complexity; i += 1) {
-            if (this.factsByPerson.get(i).get(0).size() == 1
-                    && this.factsByPerson.get(i).get(0).get(0).equals(job)) {
-                result[0] += 1;
-            }
-            if (this.factsByPerson.get(i).get(1).size() == 1
-                    && this.factsByPerson.get(i).get(1).get(0).equals(color)) {
-                result[1] += 1;
-            }
-            if (this.factsByJob.get(i).get(0).size() == 1
-                    && this.factsByJob.get(i).get(0).get(0).equals(person)) {
-                result[2] += 1;
-            }
-            if (this.factsByJob.get(i).get(1).size() == 1
-                    && this.factsByJob.get(i).get(1).get(0).equals(color)) {
-                result[3] += 1;
-            }
-            if (this.factsByColor.get(i).get(0).size() == 1
-                    && this.factsByColor.get(i).get(0).get(0).equals(person)) {
-                result[4] += 1;
-            }
-            if (this.factsByColor.get(i).get(1).size() == 1
-                    && this.factsByColor.get(i).get(1).get(0).equals(job)) {
-                result[5] += 1;
+    public Solver exploreBranches() {
+        if (this.impossible || this.solved()) {
+            return null;
+        }
+        Solver result;
+        if (this.engine == EXACT_COVER) {
+            result = cover();
+        } else if (this.engine == SATISFIABILITY) {
+            result = satisfy();
+        } else {
+            result = Search.narrow(this, this.maxSearchDepth,
+                    this.maxSearchNodes);
+        }
+        if (result == null) {
+            this.impossible = true;
+        }
+        return result == this ? null : result;
+    }
+
+    /**
+     * @param cap  the number of solutions at which to stop counting, at
+     *             least 1
+     * @return  the number of ways of completing this puzzle, or CAP if
+     *          there are at least that many.  Solutions are counted one at
+     *          a time, without keeping more than one of them, with the
+     *          SATISFIABILITY engine if it is chosen, and otherwise as an
+     *          exact cover problem.
+     */
+    int countSolutions(int cap) {
+        if (this.impossible) {
+            return 0;
+        } else if (solved()) {
+            return 1;
+        } else if (this.engine == SATISFIABILITY) {
+            Sat formula = encode();
+            int count = 0;
+            while (count < cap && formula.solve()) {
+                count += 1;
+                formula.addClause(blocking(model(formula)));
             }
+            return count;
+        }
+        return new ExactCover(this.domains, this.complexity).count(cap);
+    }
+
+    /**
+     * @return  null if this puzzle has no solutions, its only solution if
+     *          it has just one, and otherwise this solver, as found by
+     *          solving it as an exact cover problem
+     */
+    private Solver cover() {
+        ExactCover problem = new ExactCover(this.domains, this.complexity);
+        int count = problem.count(Search.MANY);
+        if (count == 0) {
+            return null;
+        } else if (count > 1) {
+            return this;
+        }
+        Solver result = cloneSolver(this);
+        for (int[] triple : problem.solution()) {
+            result.assume(triple);
         }
         return result;
     }
 
     /**
-     *  Updates associations and reviews disassociations
-     *  until no new inferences are possible.
+     * @return  null if this puzzle has no solutions, its only solution if
+     *          it has just one, and otherwise this solver, as found by
+     *          solving a boolean formula for it and then solving it again
+     *          with its first solution ruled out
      */
-    public void makeInferences() {
-        boolean updating = true;
-        boolean finalCheck = true;
-        while (!this.impossible && (updating || finalCheck)) {
-            finalCheck = updating ? true : false;
-            ArrayList<String[]> prevAssociations =
-                    new ArrayList<String[]>(this.associations);
-            ArrayList<String[]> prevDisassociations =
-                    new ArrayList<String[]>(this.disassociations);
-            for (String[] pair : prevAssociations) {
-                this.impossible =  this.impossible || this.overconstrained();
-                if (this.impossible) {
-                    break;
+    private Solver satisfy() {
+        Sat formula = encode();
+        if (!formula.solve()) {
+            return null;
+        }
+        int[][] triples = model(formula);
+        formula.addClause(blocking(triples));
+        if (formula.solve()) {
+            return this;
+        }
+        Solver result = cloneSolver(this);
+        for (int[] triple : triples) {
+            result.assume(triple);
+        }
+        return result;
+    }
+
+    /**
+     * @param formula  a formula made by encode, just found satisfiable
+     * @return  the [person, job, color] triple of every person in the
+     *          solution FORMULA found, indexed by person
+     */
+    private int[][] model(Sat formula) {
+        int[][] result = new int[this.complexity][];
+        for (int p = 0; p < this.complexity; p += 1) {
+            int[] triple = {p, -1, -1};
+            for (int i = 0; i < this.complexity; i += 1) {
+                if (formula.value(satVariable(PERSON_JOB, p, i))) {
+                    triple[1] = i;
+                }
+                if (formula.value(satVariable(PERSON_COLOR, p, i))) {
+                    triple[2] = i;
                 }
-                reassociate(pair);
             }
-            for (String[] pair : prevDisassociations) {
-                this.impossible =  this.impossible || this.overconstrained();
-                if (!this.impossible) {
-                    break;
+            result[p] = triple;
+        }
+        return result;
+    }
+
+    /** Return a clause, over the variables of encode, that rules out the
+     *  solution made up of TRIPLES and no other. */
+    private int[] blocking(int[][] triples) {
+        int[] result = new int[2 * triples.length];
+        for (int p = 0; p < triples.length; p += 1) {
+            result[2 * p] = -satVariable(PERSON_JOB, p, triples[p][1]);
+            result[2 * p + 1] = -satVariable(PERSON_COLOR, p, triples[p][2]);
+        }
+        return result;
+    }
+
+    /**
+     *  Returns a formula that holds exactly when every person, job, and
+     *  color is associated with one entity of each other type, in a way
+     *  that agrees with the candidates of this solver.  Its variables
+     *  are numbered by satVariable.
+     */
+    private Sat encode() {
+        int n = this.complexity;
+        Sat formula = new Sat(3 * n * n);
+        int[][] kinds = {{Domains.PERSON_JOBS, Domains.JOB_PEOPLE},
+            {Domains.PERSON_COLORS, Domains.COLOR_PEOPLE},
+            {Domains.JOB_COLORS, Domains.COLOR_JOBS}};
+        for (int relation = 0; relation < kinds.length; relation += 1) {
+            for (int a = 0; a < n; a += 1) {
+                for (int b = 0; b < n; b += 1) {
+                    if (!this.domains.contains(kinds[relation][0], a, b)) {
+                        formula.addClause(-satVariable(relation, a, b));
+                    }
                 }
-                redisassociate(pair);
             }
-            for (int i = 0; i < this.complexity; i += 1) {
-                ArrayList<String> p1jobs = this.factsByPerson.get(i).get(0);
-                for (int j = 0; j < this.complexity; j += 1) {
-                    ArrayList<String> p2jobs =
-                            this.factsByPerson.get(j).get(0);
-                    if (p1jobs.size() == 2 && i != j
-                            && p1jobs.equals(p2jobs)) {
-                        for (int k = 0; k < this.complexity; k += 1) {
-                            if (k != i && k != j) {
-                                personJobDisassociate(this.people.get(k),
-                                        p1jobs.get(0));
-                                personJobDisassociate(this.people.get(k),
-                                        p1jobs.get(1));
-                            }
+            for (int side = 0; side < 2; side += 1) {
+                int kind = kinds[relation][side];
+                for (int e = 0; e < n; e += 1) {
+                    int[] some = new int[this.domains.size(kind, e)];
+                    int i = 0;
+                    for (int c = this.domains.first(kind, e); c != -1;
+                            c = this.domains.next(kind, e, c + 1)) {
+                        some[i] = side == 0 ? satVariable(relation, e, c)
+                                : satVariable(relation, c, e);
+                        for (int j = 0; j < i; j += 1) {
+                            formula.addClause(-some[j], -some[i]);
                         }
+                        i += 1;
+                    }
+                    formula.addClause(some);
+                }
+            }
+        }
+        for (int p = 0; p < n; p += 1) {
+            for (int j = 0; j < n; j += 1) {
+                for (int c = 0; c < n; c += 1) {
+                    boolean x = this.domains.contains(
+                            Domains.PERSON_JOBS, p, j);
+                    boolean y = this.domains.contains(
+                            Domains.PERSON_COLORS, p, c);
+                    boolean z = this.domains.contains(
+                            Domains.JOB_COLORS, j, c);
+                    if (x ? y || z : y && z) {
+                        int vx = satVariable(PERSON_JOB, p, j);
+                        int vy = satVariable(PERSON_COLOR, p, c);
+                        int vz = satVariable(JOB_COLOR, j, c);
+                        formula.addClause(-vx, -vy, vz);
+                        formula.addClause(-vx, -vz, vy);
+                        formula.addClause(-vy, -vz, vx);
                     }
                 }
             }
-            newEliminationAssociations();
-            updating = !deepContainsAll(this.associations, prevAssociations)
-                    || !deepContainsAll(
-                            this.disassociations, prevDisassociations);
         }
-        this.impossible = this.impossible || this.contradictory();
+        return formula;
+    }
+
+    /** Return the variable of the formula made by encode that is true iff
+     *  A is associated with B by RELATION. */
+    private int satVariable(int relation, int a, int b) {
+        return (relation * this.complexity + a) * this.complexity + b + 1;
     }
 
     /**
-     * @param superset  a possible superset to SUBSET
-     * @param subset  a possible subset to SUPERSET
-     * @return  a boolean that is true if SUBSET is contained by SUPERSET
+     * @param node  a hypothetical that needs to be branched
+     * @param guess  a [person, job, color] guess of a person's attributes
+     * @return  a copy of NODE in which GUESS holds, with its inferences
+     *          made
      */
-    private boolean deepContainsAll(ArrayList<String[]> superset,
-            ArrayList<String[]> subset) {
-        boolean result = true;
-        for (String[] arr : subset) {
-            result = result && deepContains(superset, arr);
-        }
-        return result;
+    static Solver branch(Solver node, int[] guess) {
+        Stats.count(Stats.BRANCHES, 1);
+        Solver hypothetical = cloneSolver(node);
+        hypothetical.assume(guess);
+        return hypothetical;
     }
 
     /**
-     * @param pair  a dissassociation that needs to be reviewed
+     * Associates the person, job, and color of GUESS, a [person, job,
+     * color] array, and makes the inferences that follow.
      */
-    private void reassociate(String[] pair) {
-        if (this.people.contains(pair[0])
-                && this.jobs.contains(pair[1])) {
-            personJobReassociate(pair[0], pair[1]);
-        } else if (this.people.contains(pair[0])
-                && this.colors.contains(pair[1])) {
-            personColorReassociate(pair[0], pair[1]);
-        } else {
-            jobColorReassociate(pair[0], pair[1]);
-        }
+    void assume(int[] guess) {
+        jobColorAssociate(guess[1], guess[2]);
+        personJobAssociate(guess[0], guess[1]);
+        personColorAssociate(guess[0], guess[2]);
+        makeInferences();
     }
 
     /**
-     * @param pair  a dissassociation that needs to be reviewed
+     *  Records the current state of this solver, so that rollback can
+     *  later return to it.  Until then, every change is recorded on a
+     *  trail, so rolling back costs only as much as the changes made.
      */
-    private void redisassociate(String[] pair) {
-        if (this.people.contains(pair[0])
-                && this.jobs.contains(pair[1])) {
-            personJobRedisassociate(pair[0], pair[1]);
-        } else if (this.people.contains(pair[0])
-                && this.colors.contains(pair[1])) {
-            personColorRedisassociate(pair[0], pair[1]);
-        } else {
-            jobColorRedisassociate(pair[0], pair[1]);
+    void checkpoint() {
+        if (this.levels == this.checkpoints.length / CHECKPOINT_SIZE) {
+            this.checkpoints = Arrays.copyOf(this.checkpoints,
+                    2 * this.checkpoints.length);
         }
+        int start = this.levels * CHECKPOINT_SIZE;
+        this.checkpoints[start] = this.domains.mark();
+        this.checkpoints[start + 1] = this.associations.size();
+        this.checkpoints[start + 2] = this.disassociations.size();
+        this.checkpoints[start + 3] = this.reviewedAssociations;
+        this.checkpoints[start + 4] = this.reviewedDisassociations;
+        this.checkpoints[start + 5] = this.impossible ? 1 : 0;
+        this.levels += 1;
+        this.domains.setTrailing(true);
+    }
+
+    /**
+     *  Returns this solver to the state it was in at the most recent
+     *  checkpoint, which is then discarded.
+     */
+    void rollback() {
+        this.levels -= 1;
+        int start = this.levels * CHECKPOINT_SIZE;
+        this.domains.undo(this.checkpoints[start]);
+        this.associations.truncate(this.checkpoints[start + 1]);
+        this.disassociations.truncate(this.checkpoints[start + 2]);
+        this.reviewedAssociations = this.checkpoints[start + 3];
+        this.reviewedDisassociations = this.checkpoints[start + 4];
+        this.impossible = this.checkpoints[start + 5] == 1;
+        this.domains.setTrailing(this.levels > 0);
+        this.answers = null;
     }
 
     /**
-     *  Looks for cases in which (this.compelxity - 1) disassociations act
-     *  as the equivalent of an association. If such an association is found,
-     *  the association is then formalized.
+     * @return  true iff the job and the color of every person are known.
      */
-    private void newEliminationAssociations() {
+    boolean solved() {
         for (int i = 0; i < this.complexity; i += 1) {
-            if (this.factsByPerson.get(i).get(0).size() == 1) {
-                String[] personJob = {this.people.get(i),
-                        this.factsByPerson.get(i).get(0).get(0)};
-                personJobAssociate(personJob[0], personJob[1]);
-            }
-            if (this.factsByPerson.get(i).get(1).size() == 1) {
-                String[] personColor = {this.people.get(i),
-                        this.factsByPerson.get(i).get(1).get(0)};
-                personColorAssociate(personColor[0], personColor[1]);
-            }
-            if (this.factsByJob.get(i).get(1).size() == 1) {
-                String[] jobColor = {this.jobs.get(i),
-                        this.factsByJob.get(i).get(1).get(0)};
-                jobColorAssociate(jobColor[0], jobColor[1]);
+            if (this.domains.size(Domains.PERSON_JOBS, i) != 1
+                    || this.domains.size(Domains.PERSON_COLORS, i) != 1) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
-     * @return  returns null if there no confirmed branches, but
-     *          otherwise will return a complete solution
+     * @param maxDepth  the most guesses that exploreBranches may make on
+     *                  top of one another
+     * @param maxNodes  the most hypotheticals that exploreBranches may try
      */
-    public Solver exploreBranches() {
-        ArrayList<ArrayList<String>> bestPersonForGuessing =
-                this.findBestPersonForGuessing();
-        ArrayList<ArrayList<String[]>> guesses =
-                this.findGuesses(bestPersonForGuessing);
-        ArrayList<Solver> hypotheticals = new ArrayList<Solver>();
-        for (ArrayList<String[]> guess : guesses) {
-            Solver hypothetical = cloneSolver(this);
-            hypothetical.jobColorAssociate(
-                    guess.get(0)[0], guess.get(0)[1]);
-            hypothetical.personJobAssociate(
-                    guess.get(1)[0], guess.get(1)[1]);
-            hypothetical.personColorAssociate(
-                    guess.get(2)[0], guess.get(2)[1]);
-            hypothetical.makeInferences();
-            hypotheticals.add(hypothetical);
-        }
-        for (int i = 0; i < hypotheticals.size(); i += 1) {
-            boolean otherwiseImpossible = true;
-            if (!hypotheticals.get(i).impossible()) {
-                for (int j = 0; j < hypotheticals.size(); j += 1) {
-                    if (j != i) {
-                        otherwiseImpossible = otherwiseImpossible
-                                && hypotheticals.get(j).impossible();
-                    }
-                }
-                if (otherwiseImpossible) {
-                    return hypotheticals.get(i);
-                }
-            }
-        }
-        return null;
+    void setSearchLimits(int maxDepth, int maxNodes) {
+        this.maxSearchDepth = maxDepth;
+        this.maxSearchNodes = maxNodes;
+    }
+
+    /** Explore branches with ENGINE, such as GUESSING or EXACT_COVER. */
+    void setEngine(int engine) {
+        this.engine = engine;
+    }
+
+    /** Return a new solver, containing no information, that explores
+     *  branches as I do. */
+    Solver blank() {
+        Solver result = new Solver();
+        result.maxSearchDepth = this.maxSearchDepth;
+        result.maxSearchNodes = this.maxSearchNodes;
+        result.engine = this.engine;
+        return result;
     }
 
     /**
      * @param original  a solver that needs to be cloned
-     * @return  a clone of ORIGINAL
+     * @return  a clone of ORIGINAL, made by copying its candidates and
+     *          facts rather than by making its inferences again
      */
-    private static Solver cloneSolver(Solver original) {
+    static Solver cloneSolver(Solver original) {
+        Stats.count(Stats.CLONES, 1);
         Solver result = new Solver();
-        LinkedHashSet<String> newPeople = new LinkedHashSet<String>();
-        LinkedHashSet<String> newJobs = new LinkedHashSet<String>();
-        LinkedHashSet<String> newColors = new LinkedHashSet<String>();
-        for (int i = 0; i < original.complexity; i += 1) {
-            newPeople.add(original.people.get(i));
-            newJobs.add(original.jobs.get(i));
-            newColors.add(original.colors.get(i));
-        }
-        result.setParameters(newPeople, newJobs, newColors);
-        for (String [] oldAssoc : original.associations) {
-            result.associate(oldAssoc[0], oldAssoc[1], oldAssoc[2]);
-        }
-        for (String[] oldDisassoc : original.disassociations) {
-            result.disassociate(oldDisassoc[0], oldDisassoc[1], oldDisassoc[2]);
-        }
+        result.complexity = original.complexity;
+        result.impossible = original.impossible;
+        result.people.addAll(original.people);
+        result.jobs.addAll(original.jobs);
+        result.colors.addAll(original.colors);
+        result.personIds.putAll(original.personIds);
+        result.jobIds.putAll(original.jobIds);
+        result.colorIds.putAll(original.colorIds);
+        result.named = original.named.clone();
+        result.domains = new Domains(original.domains);
+        result.associations = new Ledger(original.associations);
+        result.disassociations = new Ledger(original.disassociations);
+        result.reviewedAssociations = original.reviewedAssociations;
+        result.reviewedDisassociations = original.reviewedDisassociations;
+        result.maxSearchDepth = original.maxSearchDepth;
+        result.maxSearchNodes = original.maxSearchNodes;
+        result.engine = original.engine;
         return result;
     }
 
     /**
-     * E0 and E1 become associated using the associator corresponding to TYPE.
+     * E0 and E1 become associated using the associator corresponding to
+     * the relation TYPE.
      */
-    private void associate(String e0, String e1, String type) {
-        if (type.equals("personJob")) {
+    private void associate(int e0, int e1, int type) {
+        if (type == PERSON_JOB) {
             personJobAssociate(e0, e1);
-        } else if (type.equals("personColor")) {
+        } else if (type == PERSON_COLOR) {
             personColorAssociate(e0, e1);
         } else {
             jobColorAssociate(e0, e1);
@@ -760,12 +1106,13 @@ class Solver {
     }
 
     /**
-     * E0 is disassociated with E1 by the disassociator corresponding to TYPE.
+     * E0 and E1 become disassociated using the disassociator corresponding
+     * to the relation TYPE.
      */
-    private void disassociate(String e0, String e1, String type) {
-        if (type.equals("personJob")) {
+    private void disassociate(int e0, int e1, int type) {
+        if (type == PERSON_JOB) {
             personJobDisassociate(e0, e1);
-        } else if (type.equals("personColor")) {
+        } else if (type == PERSON_COLOR) {
             personColorDisassociate(e0, e1);
         } else {
             jobColorDisassociate(e0, e1);
@@ -773,29 +1120,26 @@ class Solver {
     }
 
     /**
-     * @param mostConstrained  the most constrained person whose attributes
-     *                         still are not completely known.
-     * @return  a list of a sublists, such that each sublist contains three
-     *          associations that constitute a guess of MOSTCONSTRAINED's
-     *          attributes
-     */
-    private ArrayList<ArrayList<String[]>> findGuesses(
-            ArrayList<ArrayList<String>> mostConstrained) {
-        ArrayList<ArrayList<String[]>> result =
-                new ArrayList<ArrayList<String[]>>();
-        int index = this.factsByPerson.indexOf(mostConstrained);
-        int attr1freedom = mostConstrained.get(0).size();
-        int attr2freedom = mostConstrained.get(1).size();
-        for (int i = 0; i < attr1freedom; i += 1) {
-            for (int j = 0; j < attr2freedom; j += 1) {
-                ArrayList<String[]> guess = new ArrayList<String[]>();
-                String[] assoc1 = {mostConstrained.get(0).get(i),
-                        mostConstrained.get(1).get(j)};
-                String[] assoc2 = {this.people.get(index), assoc1[0]};
-                String[] assoc3 = {this.people.get(index), assoc1[1]};
-                guess.add(assoc1);
-                guess.add(assoc2);
-                guess.add(assoc3);
+     * @param mostConstrained  the id of the most constrained person whose
+     *                         attributes still are not completely known.
+     * @return  a list of guesses of MOSTCONSTRAINED's attributes, each of
+     *          which is a [person, job, color] array of ids
+     */
+    ArrayList<int[]> findGuesses(int mostConstrained) {
+        ArrayList<int[]> result = new ArrayList<int[]>();
+        if (mostConstrained == -1) {
+            return result;
+        }
+        for (int i = this.domains.first(Domains.PERSON_JOBS, mostConstrained);
+                i != -1;
+                i = this.domains.next(
+                        Domains.PERSON_JOBS, mostConstrained, i + 1)) {
+            for (int j = this.domains.first(
+                        Domains.PERSON_COLORS, mostConstrained);
+                    j != -1;
+                    j = this.domains.next(
+                            Domains.PERSON_COLORS, mostConstrained, j + 1)) {
+                int[] guess = {mostConstrained, i, j};
                 result.add(guess);
             }
         }
@@ -803,24 +1147,32 @@ class Solver {
     }
 
     /**
-     * @return  the most constrained person whose attributes
-     *          still are not completely known.
+     * @return  the id of the most constrained person whose attributes
+     *          still are not completely known, or -1 if every person's
+     *          attributes are known.  Among people whose candidates are
+     *          identical, the first is chosen.
      */
-    private ArrayList<ArrayList<String>> findBestPersonForGuessing() {
+    int findBestPersonForGuessing() {
         int degreesOfFreedom  = this.complexity * this.complexity;
         int personFreedom = -1;
-        ArrayList<ArrayList<String>> result =
-                new ArrayList<ArrayList<String>>();
+        int result = -1;
         for (int i = 0; i < this.complexity; i += 1) {
-            personFreedom = this.factsByPerson.get(i).get(0).size()
-                    * this.factsByPerson.get(i).get(1).size();
+            personFreedom = this.domains.size(Domains.PERSON_JOBS, i)
+                    * this.domains.size(Domains.PERSON_COLORS, i);
             if (personFreedom != 1) {
                 degreesOfFreedom = Math.min(degreesOfFreedom, personFreedom);
                 if (personFreedom == degreesOfFreedom) {
-                    result = this.factsByPerson.get(i);
+                    result = i;
                 }
             }
         }
+        for (int i = 0; i < result; i += 1) {
+            if (this.domains.sameCandidates(Domains.PERSON_JOBS, i, result)
+                    && this.domains.sameCandidates(
+                            Domains.PERSON_COLORS, i, result)) {
+                return i;
+            }
+        }
         return result;
     }
 }
@@ -0,0 +1,241 @@
+package puzzle;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** The counts and times of the work done by every solver in this
+ *  program.  Work is only counted and timed once counting is enabled,
+ *  and until then each place that counts costs no more than a look at
+ *  whether it is.  Solvers on any number of threads may count at once.
+ *  The counts can be read through JMX, as the MBean named by NAME, once
+ *  register has been called, or printed by report.
+ *  @author Tanner Wauchope */
+class Stats implements StatsMBean {
+
+    /** The name of my MBean. */
+    static final String NAME = "puzzle:type=Stats";
+
+    /** The count of the times inferences were made. */
+    static final int INFERENCES = 0;
+
+    /** The count of the times every relation was filtered as a whole. */
+    static final int ROUNDS = 1;
+
+    /** The count of the facts found by reviewing associations. */
+    static final int REASSOCIATIONS = 2;
+
+    /** The count of the facts found by reviewing disassociations. */
+    static final int REDISASSOCIATIONS = 3;
+
+    /** The count of the associations found by elimination. */
+    static final int ELIMINATIONS = 4;
+
+    /** The count of the facts found by the rule of pairs. */
+    static final int PAIRS = 5;
+
+    /** The count of the disassociations found by filtering. */
+    static final int FILTERINGS = 6;
+
+    /** The count of the guesses explored. */
+    static final int BRANCHES = 7;
+
+    /** The count of the solvers cloned. */
+    static final int CLONES = 8;
+
+    /** The time spent parsing puzzles. */
+    static final int PARSE = 0;
+
+    /** The time spent informing solvers of assertions. */
+    static final int INFORM = 1;
+
+    /** The time spent making the inferences that follow from
+     *  assertions, outside of any branch. */
+    static final int PROPAGATE = 2;
+
+    /** The time spent exploring branches, including the inferences made
+     *  in them. */
+    static final int BRANCH = 3;
+
+    /** The time spent answering questions. */
+    static final int ANSWER = 4;
+
+    /** The name of each count, as report prints it. */
+    private static final String[] COUNTS = {"inferences", "rounds",
+        "reassociations", "redisassociations", "eliminations", "pairs",
+        "filterings", "branches", "clones"};
+
+    /** The name of each time, as report prints it. */
+    private static final String[] PHASES = {"parse", "inform", "propagate",
+        "branch", "answer"};
+
+    /** My only instance, which is my MBean. */
+    private static final Stats INSTANCE = new Stats();
+
+    /** The counts, indexed by count. */
+    private static final LongAdder[] COUNTERS = adders(COUNTS.length);
+
+    /** The times, in nanoseconds, indexed by phase. */
+    private static final LongAdder[] TIMERS = adders(PHASES.length);
+
+    /** True iff work is counted and timed. */
+    private static volatile boolean enabled;
+
+    /** Only INSTANCE is made. */
+    private Stats() {
+    }
+
+    /** Return SIZE new adders. */
+    private static LongAdder[] adders(int size) {
+        LongAdder[] result = new LongAdder[size];
+        for (int i = 0; i < size; i += 1) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    /** Add N to COUNT, such as INFERENCES, if counting is enabled. */
+    static void count(int count, long n) {
+        if (enabled) {
+            COUNTERS[count].add(n);
+        }
+    }
+
+    /** Return the time at which something to be timed starts, to be
+     *  passed to time, or 0 if timing is not enabled. */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Add the time since START, as returned by start, to PHASE, such as
+     *  PARSE, if timing was enabled at START and still is. */
+    static void time(int phase, long start) {
+        if (enabled && start != 0) {
+            TIMERS[phase].add(System.nanoTime() - start);
+        }
+    }
+
+    /** Make my MBean readable through the platform's MBean server, if it
+     *  is not already. */
+    static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    INSTANCE, new ObjectName(NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            return;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Return the counts and times, one to a line. */
+    static String report() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < COUNTS.length; i += 1) {
+            result.append(String.format("%-18s %14d%n", COUNTS[i],
+                    COUNTERS[i].sum()));
+        }
+        for (int i = 0; i < PHASES.length; i += 1) {
+            result.append(String.format("%-18s %11.3f ms%n",
+                    PHASES[i] + " time", TIMERS[i].sum() / 1e6));
+        }
+        return result.toString();
+    }
+
+    /** Count and time work iff ENABLED. */
+    static void enable(boolean enabled) {
+        Stats.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        enable(enabled);
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : COUNTERS) {
+            counter.reset();
+        }
+        for (LongAdder timer : TIMERS) {
+            timer.reset();
+        }
+    }
+
+    @Override
+    public long getInferences() {
+        return COUNTERS[INFERENCES].sum();
+    }
+
+    @Override
+    public long getRounds() {
+        return COUNTERS[ROUNDS].sum();
+    }
+
+    @Override
+    public long getReassociations() {
+        return COUNTERS[REASSOCIATIONS].sum();
+    }
+
+    @Override
+    public long getRedisassociations() {
+        return COUNTERS[REDISASSOCIATIONS].sum();
+    }
+
+    @Override
+    public long getEliminations() {
+        return COUNTERS[ELIMINATIONS].sum();
+    }
+
+    @Override
+    public long getPairs() {
+        return COUNTERS[PAIRS].sum();
+    }
+
+    @Override
+    public long getFilterings() {
+        return COUNTERS[FILTERINGS].sum();
+    }
+
+    @Override
+    public long getBranches() {
+        return COUNTERS[BRANCHES].sum();
+    }
+
+    @Override
+    public long getClones() {
+        return COUNTERS[CLONES].sum();
+    }
+
+    @Override
+    public long getParseNanos() {
+        return TIMERS[PARSE].sum();
+    }
+
+    @Override
+    public long getInformNanos() {
+        return TIMERS[INFORM].sum();
+    }
+
+    @Override
+    public long getPropagateNanos() {
+        return TIMERS[PROPAGATE].sum();
+    }
+
+    @Override
+    public long getBranchNanos() {
+        return TIMERS[BRANCH].sum();
+    }
+
+    @Override
+    public long getAnswerNanos() {
+        return TIMERS[ANSWER].sum();
+    }
+}
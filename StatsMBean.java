@@ -0,0 +1,61 @@
+package puzzle;
+
+/** The counts and times of the work of the Puzzle Solver, as they are
+ *  read through JMX.  Each count is the number of times something was
+ *  done, and each time is in nanoseconds, since counting was last reset.
+ *  @author Tanner Wauchope */
+public interface StatsMBean {
+
+    /** Return true iff work is being counted and timed. */
+    boolean isEnabled();
+
+    /** Count and time work iff ENABLED. */
+    void setEnabled(boolean enabled);
+
+    /** Set every count and time back to 0. */
+    void reset();
+
+    /** Return the number of times inferences were made. */
+    long getInferences();
+
+    /** Return the number of times every relation was filtered as a
+     *  whole. */
+    long getRounds();
+
+    /** Return the number of facts found by reviewing associations. */
+    long getReassociations();
+
+    /** Return the number of facts found by reviewing disassociations. */
+    long getRedisassociations();
+
+    /** Return the number of associations found by elimination. */
+    long getEliminations();
+
+    /** Return the number of facts found by the rule of pairs. */
+    long getPairs();
+
+    /** Return the number of disassociations found by filtering. */
+    long getFilterings();
+
+    /** Return the number of guesses explored. */
+    long getBranches();
+
+    /** Return the number of solvers cloned. */
+    long getClones();
+
+    /** Return the time spent parsing puzzles. */
+    long getParseNanos();
+
+    /** Return the time spent informing solvers of assertions. */
+    long getInformNanos();
+
+    /** Return the time spent making the inferences that follow from
+     *  assertions. */
+    long getPropagateNanos();
+
+    /** Return the time spent exploring branches. */
+    long getBranchNanos();
+
+    /** Return the time spent answering questions. */
+    long getAnswerNanos();
+}